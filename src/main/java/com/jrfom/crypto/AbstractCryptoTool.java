@@ -1,15 +1,29 @@
 package com.jrfom.crypto;
 
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.*;
-import java.security.spec.InvalidParameterSpecException;
+import java.util.Arrays;
 import java.util.Optional;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jrfom.crypto.jfr.CryptoEvents;
+import com.jrfom.crypto.jfr.CryptoTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,10 +40,17 @@ import org.slf4j.LoggerFactory;
 public class AbstractCryptoTool implements CryptoTool {
   private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
 
+  private static final ObjectMapper defaultObjectMapper = new ObjectMapper();
+
+  private final SecureRandom random = new SecureRandom();
+
   protected String algorithm;
   protected String algorithmMode;
   protected Integer ivSize;
   protected Key key;
+  protected Provider provider;
+  protected ByteArrayPool byteArrayPool;
+  protected ObjectMapper objectMapper = defaultObjectMapper;
 
   /**
    * Create a new instance for the specified algorithm. Before the instance
@@ -53,6 +74,7 @@ public class AbstractCryptoTool implements CryptoTool {
   public Optional<byte[]> decrypt(EncryptedData data) {
     Optional<byte[]> result = Optional.empty();
     Optional<Cipher> cipherOptional = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("decrypt", this.algorithmMode);
 
     try {
       cipherOptional = this.getDecryptCipher(data.getIv());
@@ -61,6 +83,8 @@ public class AbstractCryptoTool implements CryptoTool {
       log.debug(e.toString());
     }
 
+    trace.phase(CryptoTrace.Phase.SETUP);
+
     if (cipherOptional.isPresent()) {
       try {
         Cipher cipher = cipherOptional.get();
@@ -75,6 +99,103 @@ public class AbstractCryptoTool implements CryptoTool {
       }
     }
 
+    trace.end((data.getData() == null) ? 0 : data.getData().length, result.isPresent());
+    return result;
+  }
+
+  /**
+   * Decrypt the data described by a {@link com.jrfom.crypto.EncryptedDataView}
+   * without first copying the IV or the encrypted bytes out of the view's
+   * backing buffer.
+   *
+   * @param view A view of data that has been encrypted using the tool's
+   *             algorithm
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped byte array of the decrypted data.
+   * @since 0.4.0
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedDataView view) {
+    Optional<byte[]> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("decrypt", this.algorithmMode);
+    Optional<Cipher> cipherOptional = this.getViewCipher(view);
+    trace.phase(CryptoTrace.Phase.SETUP);
+
+    if (cipherOptional.isPresent()) {
+      try {
+        Cipher cipher = cipherOptional.get();
+        ByteBuffer buffer = view.getBuffer();
+        byte[] decryptedBytes;
+
+        if (buffer.hasArray()) {
+          decryptedBytes = cipher.doFinal(
+            buffer.array(),
+            buffer.arrayOffset() + view.getDataOffset(),
+            view.getDataLength()
+          );
+        } else {
+          byte[] output = new byte[cipher.getOutputSize(view.getDataLength())];
+          int length = cipher.doFinal(view.dataBuffer(), ByteBuffer.wrap(output));
+          decryptedBytes = (length == output.length) ?
+            output : Arrays.copyOf(output, length);
+        }
+
+        result = Optional.of(decryptedBytes);
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (ShortBufferException e) {
+        log.error("Output buffer is too small: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    trace.end(view.getDataLength(), result.isPresent());
+    return result;
+  }
+
+  /**
+   * Decrypt the data described by a {@link com.jrfom.crypto.EncryptedDataView}
+   * into a caller supplied buffer. This allows bulk readers to decrypt many
+   * records while reusing a single output buffer.
+   *
+   * @param view A view of data that has been encrypted using the tool's
+   *             algorithm
+   * @param output The buffer to write the decrypted bytes to, starting at its
+   *               current position. It must have at least as many bytes
+   *               remaining as the view's data length.
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped count of the bytes written to
+   *         {@code output}.
+   * @since 0.4.0
+   */
+  public Optional<Integer> decrypt(EncryptedDataView view, ByteBuffer output) {
+    Optional<Integer> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("decrypt", this.algorithmMode);
+    Optional<Cipher> cipherOptional = this.getViewCipher(view);
+    trace.phase(CryptoTrace.Phase.SETUP);
+
+    if (cipherOptional.isPresent()) {
+      try {
+        Cipher cipher = cipherOptional.get();
+        int length = cipher.doFinal(view.dataBuffer(), output);
+        result = Optional.of(length);
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (ShortBufferException e) {
+        log.error("Output buffer is too small: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    trace.end(view.getDataLength(), result.isPresent());
     return result;
   }
 
@@ -93,22 +214,29 @@ public class AbstractCryptoTool implements CryptoTool {
   public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
     Optional<EncryptedData> result = Optional.empty();
     Optional<Cipher> cipherOptional = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("encrypt", this.algorithmMode);
+    byte[] _iv = (iv == null) ? this.randomIv() : iv;
+    trace.phase(CryptoTrace.Phase.RANDOM);
 
     try {
-      cipherOptional = this.getEncryptCipher(iv);
+      cipherOptional = this.getEncryptCipher(_iv);
     } catch (Exception e) {
       log.error("Could not get Cipher instance: `{}`", e.getMessage());
       log.debug(e.toString());
     }
 
+    trace.phase(CryptoTrace.Phase.SETUP);
+
     if (cipherOptional.isPresent()) {
       try {
         Cipher cipher = cipherOptional.get();
         byte[] encryptedBytes = cipher.doFinal(data);
 
+        // A generated IV is owned by the result; a supplied one is copied.
         EncryptedData encryptedData = new EncryptedData(
-          cipher.getIV(),
-          encryptedBytes
+          (iv == null) ? _iv : cipher.getIV(),
+          encryptedBytes,
+          AlgorithmId.fromTransformation(this.algorithmMode).orElse(null)
         );
 
         result = Optional.of(encryptedData);
@@ -121,6 +249,250 @@ public class AbstractCryptoTool implements CryptoTool {
       }
     }
 
+    if (!result.isPresent() && iv == null) {
+      this.releaseArray(_iv);
+    }
+
+    trace.end(data.length, result.isPresent());
+    return result;
+  }
+
+  /**
+   * <p>Encrypt the remaining bytes of {@code data} into a buffer taken from
+   * {@code pool}. The result is a view over that buffer laid out as the IV
+   * followed by the encrypted bytes. When {@code data} and the pool buffers
+   * are direct, large payloads are encrypted without allocating heap
+   * arrays.</p>
+   *
+   * <p>Give the buffer back with {@code pool.release(view.getBuffer())} once
+   * the encrypted data has been consumed.</p>
+   *
+   * @param data The data to be encrypted. Its position is advanced to its
+   *             limit.
+   * @param pool The pool to take the output buffer from
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped
+   *         {@link com.jrfom.crypto.EncryptedDataView}.
+   * @since 0.4.0
+   */
+  public Optional<EncryptedDataView> encrypt(ByteBuffer data, DirectBufferPool pool) {
+    Optional<EncryptedDataView> result = Optional.empty();
+    int payloadSize = data.remaining();
+    CryptoTrace trace = CryptoEvents.cipher("encrypt", this.algorithmMode);
+    Optional<Cipher> cipherOptional = this.getRandomIvEncryptCipher(trace);
+
+    if (cipherOptional.isPresent()) {
+      Cipher cipher = cipherOptional.get();
+      byte[] iv = cipher.getIV();
+      ByteBuffer output =
+        pool.acquire(iv.length + cipher.getOutputSize(data.remaining()));
+
+      try {
+        output.put(iv);
+        int length = cipher.doFinal(data, output);
+        result = Optional.of(
+          new EncryptedDataView(output, 0, iv.length, iv.length, length)
+        );
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (ShortBufferException e) {
+        log.error("Output buffer is too small: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+
+      if (!result.isPresent()) {
+        pool.release(output);
+      }
+    }
+
+    trace.end(payloadSize, result.isPresent());
+    return result;
+  }
+
+  /**
+   * <p>Decrypt the data described by a
+   * {@link com.jrfom.crypto.EncryptedDataView} into a buffer taken from
+   * {@code pool}.</p>
+   *
+   * <p>Give the buffer back with {@code pool.release(buffer)} once the
+   * decrypted data has been consumed.</p>
+   *
+   * @param view A view of data that has been encrypted using the tool's
+   *             algorithm
+   * @param pool The pool to take the output buffer from
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped buffer whose position is zero and
+   *         whose limit is the length of the decrypted data.
+   * @since 0.4.0
+   */
+  public Optional<ByteBuffer> decrypt(EncryptedDataView view, DirectBufferPool pool) {
+    Optional<ByteBuffer> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("decrypt", this.algorithmMode);
+    Optional<Cipher> cipherOptional = this.getViewCipher(view);
+    trace.phase(CryptoTrace.Phase.SETUP);
+
+    if (cipherOptional.isPresent()) {
+      Cipher cipher = cipherOptional.get();
+      ByteBuffer output = pool.acquire(cipher.getOutputSize(view.getDataLength()));
+
+      try {
+        cipher.doFinal(view.dataBuffer(), output);
+        output.flip();
+        result = Optional.of(output);
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (ShortBufferException e) {
+        log.error("Output buffer is too small: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+
+      if (!result.isPresent()) {
+        pool.release(output);
+      }
+    }
+
+    trace.end(view.getDataLength(), result.isPresent());
+    return result;
+  }
+
+  /**
+   * <p>Serialize {@code value} to JSON and encrypt it straight into
+   * {@code output}. The JSON generator writes through a
+   * {@link javax.crypto.CipherOutputStream}, so the object is encrypted in
+   * one pass without building the serialized or encrypted payload in
+   * memory.</p>
+   *
+   * <p>The stream starts with a header: the
+   * {@link com.jrfom.crypto.AlgorithmId} number of the tool's algorithm mode
+   * (zero if it has none), the IV length, and the IV. The encrypted JSON
+   * follows. {@code output} is flushed but not closed.</p>
+   *
+   * @param value The object to serialize with {@link #getObjectMapper()}
+   * @param output The stream to write the header and encrypted JSON to
+   * @return {@code true} if the object was written, otherwise {@code false}.
+   *         Part of the stream may have been written on failure.
+   * @since 0.4.0
+   */
+  public boolean encryptObject(Object value, OutputStream output) {
+    boolean result = false;
+    long payloadSize = 0;
+    CryptoTrace trace = CryptoEvents.cipher("encrypt", this.algorithmMode);
+    Optional<Cipher> cipherOptional = this.getRandomIvEncryptCipher(trace);
+
+    if (cipherOptional.isPresent()) {
+      Cipher cipher = cipherOptional.get();
+      byte[] iv = cipher.getIV();
+
+      try {
+        output.write(AlgorithmId.fromTransformation(this.algorithmMode)
+          .map(AlgorithmId::getId)
+          .orElse(0));
+        output.write(iv.length);
+        output.write(iv);
+
+        // Closing the cipher stream writes the final block; the wrapper
+        // keeps it from closing the caller's stream.
+        CountingOutputStream plainText = null;
+        try (OutputStream encrypted =
+               new CipherOutputStream(new NonClosingOutputStream(output), cipher))
+        {
+          plainText = new CountingOutputStream(encrypted);
+          this.objectMapper.writeValue(plainText, value);
+        } finally {
+          payloadSize = (plainText == null) ? 0 : plainText.count;
+        }
+        output.flush();
+        result = true;
+      } catch (IOException e) {
+        log.error("Could not write encrypted object: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    trace.end(payloadSize, result);
+    return result;
+  }
+
+  /**
+   * <p>Decrypt a stream written by
+   * {@link com.jrfom.crypto.AbstractCryptoTool#encryptObject} and
+   * deserialize the object it holds. The JSON parser reads through a
+   * {@link javax.crypto.CipherInputStream}, so memory use does not grow
+   * with the size of the payload.</p>
+   *
+   * <p>The stream is read to its end, so padding is verified and trailing
+   * content is rejected before the object is returned. {@code input} is not
+   * closed.</p>
+   *
+   * @param input The stream to read the header and encrypted JSON from
+   * @param type The type to deserialize with {@link #getObjectMapper()}
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped instance of {@code type}.
+   * @since 0.4.0
+   */
+  public <T> Optional<T> decryptObject(InputStream input, Class<T> type) {
+    Optional<T> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.cipher("decrypt", this.algorithmMode);
+    DataInputStream header = new DataInputStream(input);
+    byte[] iv;
+
+    try {
+      int algorithmId = header.readUnsignedByte();
+      Optional<AlgorithmId> expected = AlgorithmId.fromTransformation(this.algorithmMode);
+
+      if (algorithmId != 0 && algorithmId != expected.map(AlgorithmId::getId).orElse(0)) {
+        log.error("Stream algorithm id `{}` does not match `{}`", algorithmId, this.algorithmMode);
+        trace.end(0, false);
+        return result;
+      }
+
+      iv = new byte[header.readUnsignedByte()];
+      header.readFully(iv);
+    } catch (IOException e) {
+      log.error("Could not read encrypted object header: `{}`", e.getMessage());
+      log.debug(e.toString());
+      trace.end(0, false);
+      return result;
+    }
+
+    Optional<Cipher> cipherOptional = Optional.empty();
+
+    try {
+      cipherOptional = this.getDecryptCipher(iv);
+    } catch (Exception e) {
+      log.error("Could not get Cipher instance: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    trace.phase(CryptoTrace.Phase.SETUP);
+    NonClosingInputStream cipherText = new NonClosingInputStream(input);
+
+    if (cipherOptional.isPresent()) {
+      InputStream plainText = new CipherInputStream(cipherText, cipherOptional.get());
+
+      try (JsonParser parser = this.objectMapper.getFactory().createParser(plainText)) {
+        T value = this.objectMapper.readValue(parser, type);
+
+        if (parser.nextToken() != null) {
+          log.error("Encrypted object is followed by unexpected content");
+        } else {
+          result = Optional.ofNullable(value);
+        }
+      } catch (IOException e) {
+        log.error("Could not read encrypted object: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    trace.end(cipherText.count, result.isPresent());
     return result;
   }
 
@@ -154,22 +526,123 @@ public class AbstractCryptoTool implements CryptoTool {
     this.key = key;
   }
 
+  public Provider getProvider() {
+    return this.provider;
+  }
+
+  /**
+   * Define the {@link java.security.Provider} that will supply
+   * {@link javax.crypto.Cipher} instances for this tool. When it is not set,
+   * the provider pinned in {@link com.jrfom.crypto.CryptoProviders} is used,
+   * falling back to the first installed provider that supports the
+   * algorithm mode.
+   *
+   * @param provider
+   * @since 0.4.0
+   */
+  public void setProvider(Provider provider) {
+    this.provider = provider;
+  }
+
+  public ByteArrayPool getByteArrayPool() {
+    return this.byteArrayPool;
+  }
+
+  /**
+   * Define the {@link com.jrfom.crypto.ByteArrayPool} that per-operation
+   * arrays, such as generated initialization vectors, are drawn from. Pooling
+   * is disabled when it is not set. Return the IVs of results that are no
+   * longer needed with {@link com.jrfom.crypto.EncryptedData#release}.
+   *
+   * @param byteArrayPool
+   * @since 0.4.0
+   */
+  public void setByteArrayPool(ByteArrayPool byteArrayPool) {
+    this.byteArrayPool = byteArrayPool;
+  }
+
+  public ObjectMapper getObjectMapper() {
+    return this.objectMapper;
+  }
+
+  /**
+   * Define the {@link com.fasterxml.jackson.databind.ObjectMapper} used by
+   * {@link com.jrfom.crypto.AbstractCryptoTool#encryptObject} and
+   * {@link com.jrfom.crypto.AbstractCryptoTool#decryptObject}. A shared
+   * default mapper is used when it is not set.
+   *
+   * @param objectMapper
+   * @since 0.4.0
+   */
+  public void setObjectMapper(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
   protected Optional<Cipher> getDecryptCipher(byte[] iv) throws Exception {
     return this.getCipher(Cipher.DECRYPT_MODE, iv);
   }
 
   protected Optional<Cipher> getEncryptCipher(byte[] iv) throws Exception {
-    byte[] _iv = iv;
-    if (_iv == null) {
-      _iv = new byte[this.ivSize];
-      SecureRandom random = new SecureRandom();
-      random.nextBytes(_iv);
+    if (iv != null) {
+      return this.getCipher(Cipher.ENCRYPT_MODE, iv);
     }
 
-    return this.getCipher(Cipher.ENCRYPT_MODE, _iv);
+    // The IvParameterSpec keeps its own copy, so the random IV can be recycled.
+    byte[] _iv = this.randomIv();
+    try {
+      return this.getCipher(Cipher.ENCRYPT_MODE, _iv);
+    } finally {
+      this.releaseArray(_iv);
+    }
+  }
+
+  /**
+   * Generate a random initialization vector of {@link #ivSize} bytes. When a
+   * {@link com.jrfom.crypto.ByteArrayPool} is set and the IV size is one of
+   * its size classes, the array is drawn from the pool.
+   *
+   * @since 0.4.0
+   */
+  protected byte[] randomIv() {
+    byte[] iv = (this.byteArrayPool != null && this.byteArrayPool.isExactSize(this.ivSize)) ?
+      this.byteArrayPool.acquire(this.ivSize) :
+      new byte[this.ivSize];
+
+    this.random.nextBytes(iv);
+    return iv;
+  }
+
+  /**
+   * Return an array to the {@link com.jrfom.crypto.ByteArrayPool}, if one
+   * is set.
+   *
+   * @since 0.4.0
+   */
+  protected void releaseArray(byte[] array) {
+    if (this.byteArrayPool != null) {
+      this.byteArrayPool.release(array);
+    }
   }
 
   protected Optional<Cipher> getCipher(int mode, byte[] iv) throws Exception {
+    return this.getCipher(mode, new IvParameterSpec(iv));
+  }
+
+  protected Optional<Cipher> getCipher(int mode, IvParameterSpec ivParameterSpec)
+    throws Exception
+  {
+    return this.getCipher(mode, this.algorithmMode, ivParameterSpec);
+  }
+
+  /**
+   * Get a {@link javax.crypto.Cipher} for the tool's key and algorithm but a
+   * different processing mode than {@link #getAlgorithmMode()}, e.g. the
+   * unpadded variant of the configured mode.
+   */
+  protected Optional<Cipher> getCipher(int mode, String algorithmMode,
+                                       IvParameterSpec ivParameterSpec)
+    throws Exception
+  {
     Optional<Cipher> result = Optional.empty();
 
     if (this.key == null) {
@@ -177,14 +650,11 @@ public class AbstractCryptoTool implements CryptoTool {
     }
 
     try {
-      Cipher cipher = Cipher.getInstance(this.algorithmMode);
+      Cipher cipher = (this.provider == null) ?
+        CryptoProviders.cipher(algorithmMode) :
+        Cipher.getInstance(algorithmMode, this.provider);
 
-      IvParameterSpec ivParameterSpec = new IvParameterSpec(iv);
-      AlgorithmParameters parameters =
-        AlgorithmParameters.getInstance(this.algorithm);
-      parameters.init(ivParameterSpec);
-
-      cipher.init(mode, this.key, parameters);
+      cipher.init(mode, this.key, ivParameterSpec);
       result = Optional.of(cipher);
     } catch (NoSuchAlgorithmException e) {
       log.error("Could not find cipher mode: `{}`", e.getMessage());
@@ -192,9 +662,6 @@ public class AbstractCryptoTool implements CryptoTool {
     } catch (NoSuchPaddingException e) {
       log.error("Could not find padding type: `{}`", e.getMessage());
       log.debug(e.toString());
-    } catch (InvalidParameterSpecException e) {
-      log.error("Algorithm parameter spec invalid: `{}`", e.getMessage());
-      log.debug(e.toString());
     } catch (InvalidAlgorithmParameterException e) {
       log.error("Algorithm parameters invalid: `{}`", e.getMessage());
       log.debug(e.toString());
@@ -205,4 +672,114 @@ public class AbstractCryptoTool implements CryptoTool {
 
     return result;
   }
-}
\ No newline at end of file
+
+  // Like getEncryptCipher(null), but attributes generating the IV and
+  // setting up the cipher to their trace phases.
+  private Optional<Cipher> getRandomIvEncryptCipher(CryptoTrace trace) {
+    Optional<Cipher> result = Optional.empty();
+    byte[] iv = this.randomIv();
+    trace.phase(CryptoTrace.Phase.RANDOM);
+
+    try {
+      result = this.getEncryptCipher(iv);
+    } catch (Exception e) {
+      log.error("Could not get Cipher instance: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } finally {
+      // The IvParameterSpec keeps its own copy, so the IV can be recycled.
+      this.releaseArray(iv);
+    }
+
+    trace.phase(CryptoTrace.Phase.SETUP);
+    return result;
+  }
+
+  private Optional<Cipher> getViewCipher(EncryptedDataView view) {
+    Optional<Cipher> result = Optional.empty();
+
+    try {
+      result = this.getCipher(Cipher.DECRYPT_MODE, view.ivParameterSpec());
+    } catch (Exception e) {
+      log.error("Could not get Cipher instance: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  // Lets the cipher streams finish their work on close without closing the
+  // caller's stream.
+  private static class NonClosingOutputStream extends FilterOutputStream {
+    NonClosingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.out.flush();
+    }
+  }
+
+  // Also counts the bytes read, for the trace.
+  private static class NonClosingInputStream extends FilterInputStream {
+    long count;
+
+    NonClosingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = this.in.read();
+      if (result >= 0) {
+        this.count += 1;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int result = this.in.read(b, off, len);
+      if (result > 0) {
+        this.count += result;
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long result = this.in.skip(n);
+      this.count += result;
+      return result;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  // Counts the plaintext bytes written, for the trace.
+  private static class CountingOutputStream extends FilterOutputStream {
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.out.write(b);
+      this.count += 1;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+      this.count += len;
+    }
+  }
+}
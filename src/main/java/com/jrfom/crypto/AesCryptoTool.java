@@ -1,12 +1,25 @@
 package com.jrfom.crypto;
 
 import java.security.Key;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.IvParameterSpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of {@link com.jrfom.crypto.CryptoTool} that is specific
  * to the AES algorithm. It uses the mode "AES/CBC/PKCS5Padding".
  */
 public class AesCryptoTool extends AbstractCryptoTool {
+  private static final Logger log = LoggerFactory.getLogger(AesCryptoTool.class);
+
+  private static final int BLOCK_SIZE = 16;
 
   /**
    * Create an instance using the specified key.
@@ -22,4 +35,110 @@ public class AesCryptoTool extends AbstractCryptoTool {
   private AesCryptoTool(String algorithm, String algorithmMode, Integer ivSize) {
     super(algorithm, algorithmMode, ivSize);
   }
-}
\ No newline at end of file
+
+  /**
+   * <p>Decrypt part of a {@link com.jrfom.crypto.EncryptedData} without
+   * decrypting the whole payload. In CBC mode plaintext block {@code i}
+   * depends only on ciphertext blocks {@code i - 1} and {@code i}, so only
+   * the blocks that cover the requested range are decrypted.</p>
+   *
+   * <p>When the range reaches into the final block, that block is decrypted
+   * as well so its PKCS5 padding can be verified and removed.</p>
+   *
+   * @param data Data that has been encrypted with "AES/CBC/PKCS5Padding"
+   * @param offset The plaintext offset of the first byte to return
+   * @param length The number of plaintext bytes to return
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped byte array of the requested
+   *         plaintext. The array is shorter than {@code length} if the range
+   *         extends past the end of the plaintext.
+   * @since 0.4.0
+   */
+  public Optional<byte[]> decryptRange(EncryptedData data, long offset, int length) {
+    Optional<byte[]> result = Optional.empty();
+    byte[] encrypted = data.getData();
+
+    if (!CipherConstants.AesCbcPad5().equals(this.algorithmMode)) {
+      log.error("Range decryption requires mode `{}`", CipherConstants.AesCbcPad5());
+      return result;
+    }
+
+    if (offset < 0 || length < 0) {
+      log.error("Invalid range: offset `{}`, length `{}`", offset, length);
+      return result;
+    }
+
+    if (encrypted == null || encrypted.length == 0 || encrypted.length % BLOCK_SIZE != 0) {
+      log.error("Encrypted data is not a whole number of blocks");
+      return result;
+    }
+
+    int blocks = encrypted.length / BLOCK_SIZE;
+    if (length == 0 || offset / BLOCK_SIZE >= blocks) {
+      return Optional.of(new byte[0]);
+    }
+
+    int firstBlock = (int) (offset / BLOCK_SIZE);
+    int lastBlock = (int) Math.min((offset + length - 1) / BLOCK_SIZE, blocks - 1);
+    boolean includesFinalBlock = (lastBlock == blocks - 1);
+
+    IvParameterSpec iv = (firstBlock == 0) ?
+      new IvParameterSpec(data.getIv()) :
+      new IvParameterSpec(encrypted, (firstBlock - 1) * BLOCK_SIZE, BLOCK_SIZE);
+
+    Optional<Cipher> cipherOptional = Optional.empty();
+    try {
+      cipherOptional = this.getCipher(
+        Cipher.DECRYPT_MODE,
+        CipherConstants.AesCbcNoPad(),
+        iv
+      );
+    } catch (Exception e) {
+      log.error("Could not get Cipher instance: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    if (cipherOptional.isPresent()) {
+      try {
+        byte[] decryptedBytes = cipherOptional.get().doFinal(
+          encrypted,
+          firstBlock * BLOCK_SIZE,
+          (lastBlock - firstBlock + 1) * BLOCK_SIZE
+        );
+
+        int available = decryptedBytes.length;
+        if (includesFinalBlock) {
+          available -= this.paddingLength(decryptedBytes);
+        }
+
+        int start = (int) (offset - (long) firstBlock * BLOCK_SIZE);
+        int end = start + Math.max(0, Math.min(length, available - start));
+        result = Optional.of(Arrays.copyOfRange(decryptedBytes, start, end));
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  private int paddingLength(byte[] decryptedBytes) throws BadPaddingException {
+    int padding = decryptedBytes[decryptedBytes.length - 1] & 0xFF;
+
+    if (padding < 1 || padding > BLOCK_SIZE) {
+      throw new BadPaddingException("Invalid PKCS5 padding length");
+    }
+
+    for (int i = decryptedBytes.length - padding; i < decryptedBytes.length; i += 1) {
+      if ((decryptedBytes[i] & 0xFF) != padding) {
+        throw new BadPaddingException("Invalid PKCS5 padding bytes");
+      }
+    }
+
+    return padding;
+  }
+}
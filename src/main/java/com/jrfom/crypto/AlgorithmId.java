@@ -0,0 +1,101 @@
+package com.jrfom.crypto;
+
+import java.util.Optional;
+
+/**
+ * <p>Compact identifiers for the {@link com.jrfom.crypto.CipherConstants}
+ * combinations produced by this library's tools. An
+ * {@link com.jrfom.crypto.EncryptedData} carries its identifier, serialized
+ * as the one byte "alg" number, so a reader can tell how it was encrypted
+ * without out of band configuration.</p>
+ *
+ * <p>The numbers are part of the serialized format. New combinations must
+ * be given new numbers; existing numbers must never be reused.</p>
+ *
+ * @since 0.4.0
+ */
+public enum AlgorithmId {
+  AES_CBC_PKCS5(1, CipherConstants.ALGO_AES, CipherConstants.MODE_CBC, CipherConstants.PAD_PKCS5),
+  AES_CBC_NOPAD(2, CipherConstants.ALGO_AES, CipherConstants.MODE_CBC, CipherConstants.PAD_NONE),
+  AES_CTR_NOPAD(3, CipherConstants.ALGO_AES, CipherConstants.MODE_CTR, CipherConstants.PAD_NONE),
+  AES_GCM_NOPAD(4, CipherConstants.ALGO_AES, CipherConstants.MODE_GCM, CipherConstants.PAD_NONE),
+  AES_SIV(5, CipherConstants.ALGO_AES, CipherConstants.MODE_SIV, CipherConstants.PAD_NONE);
+
+  private static final AlgorithmId[] byId = new AlgorithmId[256];
+
+  static {
+    for (AlgorithmId algorithmId : AlgorithmId.values()) {
+      byId[algorithmId.id] = algorithmId;
+    }
+  }
+
+  private final int id;
+  private final String algorithm;
+  private final String mode;
+  private final String padding;
+  private final String transformation;
+
+  AlgorithmId(int id, String algorithm, String mode, String padding) {
+    this.id = id;
+    this.algorithm = algorithm;
+    this.mode = mode;
+    this.padding = padding;
+    this.transformation = String.format("%s/%s/%s", algorithm, mode, padding);
+  }
+
+  /**
+   * Find the identifier with the given serialized number.
+   *
+   * @param id The number read from an "alg" field
+   * @return An empty {@link java.util.Optional} if the number is unknown.
+   *         Otherwise the Optional wrapped identifier.
+   */
+  public static Optional<AlgorithmId> fromId(int id) {
+    return (id < 0 || id >= byId.length) ?
+      Optional.empty() :
+      Optional.ofNullable(byId[id]);
+  }
+
+  /**
+   * Find the identifier for a transformation, e.g. "AES/CBC/PKCS5Padding".
+   * The comparison ignores case, as {@link javax.crypto.Cipher} does.
+   *
+   * @param transformation The transformation to look up
+   * @return An empty {@link java.util.Optional} if the transformation has no
+   *         identifier. Otherwise the Optional wrapped identifier.
+   */
+  public static Optional<AlgorithmId> fromTransformation(String transformation) {
+    Optional<AlgorithmId> result = Optional.empty();
+
+    if (transformation != null) {
+      for (AlgorithmId algorithmId : AlgorithmId.values()) {
+        if (algorithmId.transformation.equalsIgnoreCase(transformation)) {
+          result = Optional.of(algorithmId);
+          break;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  public int getId() {
+    return this.id;
+  }
+
+  public String getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public String getMode() {
+    return this.mode;
+  }
+
+  public String getPadding() {
+    return this.padding;
+  }
+
+  public String getTransformation() {
+    return this.transformation;
+  }
+}
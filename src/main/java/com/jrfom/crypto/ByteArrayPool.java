@@ -0,0 +1,91 @@
+package com.jrfom.crypto;
+
+import java.util.Arrays;
+
+/**
+ * <p>A pool of {@code byte[]}s grouped into power of two size classes from
+ * {@link #MINIMUM_ARRAY_SIZE} up to the pool's maximum array size. It is
+ * used to recycle the short lived arrays created for every operation, such
+ * as Initialization Vectors, to reduce young generation garbage.</p>
+ *
+ * <p>{@link ByteArrayPool#acquire} returns an array whose length is the
+ * size class of the request, so a request for a power of two (e.g. a 16
+ * byte IV) is satisfied exactly. Arrays of any other length are simply not
+ * retained by {@link ByteArrayPool#release}.</p>
+ *
+ * <p>See {@link com.jrfom.crypto.AbstractCryptoTool#setByteArrayPool} and
+ * {@link com.jrfom.crypto.EncryptedData#release}. Instances are thread
+ * safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class ByteArrayPool {
+  public static final int MINIMUM_ARRAY_SIZE = 16;
+  public static final int DEFAULT_MAXIMUM_ARRAY_SIZE = 64 * 1024;
+  public static final int DEFAULT_RETAINED_PER_CLASS = 256;
+
+  private final SizeClassPool<byte[]> pool;
+  private final boolean zeroOnRelease;
+
+  /**
+   * Create a pool with the default limits that zeroes released arrays.
+   */
+  public ByteArrayPool() {
+    this(DEFAULT_MAXIMUM_ARRAY_SIZE, DEFAULT_RETAINED_PER_CLASS, true);
+  }
+
+  /**
+   * @param maximumArraySize The largest array the pool will retain. It is
+   *                         rounded up to a power of two.
+   * @param retainedPerClass The maximum number of idle arrays kept for each
+   *                         size class
+   * @param zeroOnRelease Whether released arrays are overwritten with zeros
+   */
+  public ByteArrayPool(int maximumArraySize, int retainedPerClass, boolean zeroOnRelease) {
+    this.pool = new SizeClassPool<>(MINIMUM_ARRAY_SIZE, maximumArraySize, retainedPerClass);
+    this.zeroOnRelease = zeroOnRelease;
+  }
+
+  /**
+   * Get an array of at least {@code length} bytes.
+   *
+   * @param length The number of bytes needed
+   * @return An array whose length is {@code length} rounded up to a power of
+   *         two (or exactly {@code length} if it exceeds the pool's maximum)
+   */
+  public byte[] acquire(int length) {
+    if (length > this.pool.getMaximumSize()) {
+      return new byte[length];
+    }
+
+    byte[] array = this.pool.poll(length);
+    return (array == null) ? new byte[this.pool.classSize(length)] : array;
+  }
+
+  /**
+   * Return an array to the pool. The array must not be used after it has
+   * been released.
+   *
+   * @param array The array to return. Arrays whose length is not a size
+   *              class of this pool are ignored.
+   */
+  public void release(byte[] array) {
+    if (array == null || !this.pool.isClassSize(array.length)) {
+      return;
+    }
+
+    if (this.zeroOnRelease) {
+      Arrays.fill(array, (byte) 0);
+    }
+
+    this.pool.offer(array, array.length);
+  }
+
+  /**
+   * Whether {@link ByteArrayPool#acquire} returns arrays of exactly
+   * {@code length} bytes.
+   */
+  public boolean isExactSize(int length) {
+    return this.pool.isClassSize(length);
+  }
+}
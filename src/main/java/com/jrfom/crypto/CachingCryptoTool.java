@@ -0,0 +1,264 @@
+package com.jrfom.crypto;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A {@link com.jrfom.crypto.CryptoTool} decorator that caches decrypted
+ * plaintext, keyed by the {@link com.jrfom.crypto.AlgorithmId} tag, IV, and
+ * encrypted data. Repeated decryption of the
+ * same {@link com.jrfom.crypto.EncryptedData} (e.g. a hot configuration
+ * value) is answered from the cache without touching the cipher.
+ * Encryption is always delegated.</p>
+ *
+ * <p>The cache is bounded by weight: the number of bytes held in keys and
+ * values. The least recently used entries are evicted first, and entries
+ * may optionally expire after a fixed time to live. Evicted plaintext can be
+ * zeroed so it does not linger on the heap.</p>
+ *
+ * <p>The cache does not know the delegate's key. A cached entry is returned
+ * even if the delegate would now reject the data, so call
+ * {@link com.jrfom.crypto.CachingCryptoTool#invalidateAll} whenever the
+ * delegate's key changes, e.g. after a rotation.</p>
+ *
+ * <p>Callers always receive their own copy of the plaintext, so they may
+ * modify or zero it. Instances are thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class CachingCryptoTool implements CryptoTool {
+  // Approximate per entry cost of the key, entry, and map node objects.
+  private static final int ENTRY_OVERHEAD = 96;
+
+  private final CryptoTool tool;
+  private final long maximumWeight;
+  private final long ttlNanos;
+  private final boolean zeroEvicted;
+
+  private final LinkedHashMap<CacheKey, CacheEntry> entries =
+    new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create a cache without expiry that zeroes evicted plaintext.
+   *
+   * @param tool The tool that performs the actual encryption and decryption
+   * @param maximumWeight The maximum number of bytes to hold
+   */
+  public CachingCryptoTool(CryptoTool tool, long maximumWeight) {
+    this(tool, maximumWeight, 0, true);
+  }
+
+  /**
+   * @param tool The tool that performs the actual encryption and decryption
+   * @param maximumWeight The maximum number of bytes to hold
+   * @param ttlMillis How long an entry remains valid after it is added.
+   *                  Zero or less disables expiry.
+   * @param zeroEvicted Whether evicted and expired plaintext is overwritten
+   *                    with zeros
+   */
+  public CachingCryptoTool(CryptoTool tool, long maximumWeight, long ttlMillis,
+                           boolean zeroEvicted)
+  {
+    this.tool = tool;
+    this.maximumWeight = maximumWeight;
+    this.ttlNanos = (ttlMillis > 0) ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+    this.zeroEvicted = zeroEvicted;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedData data) {
+    if (data.getIv() == null || data.getData() == null) {
+      return this.tool.decrypt(data);
+    }
+
+    CacheKey key = new CacheKey(data.getAlgorithmId(), data.getIv(), data.getData());
+
+    synchronized (this.entries) {
+      CacheEntry entry = this.entries.get(key);
+
+      if (entry != null) {
+        if (this.ttlNanos == 0 || System.nanoTime() - entry.created < this.ttlNanos) {
+          this.hits.increment();
+          return Optional.of(entry.plainText.clone());
+        }
+
+        this.entries.remove(key);
+        this.discard(entry);
+      }
+    }
+
+    this.misses.increment();
+    Optional<byte[]> result = this.tool.decrypt(data);
+    result.ifPresent((plainText) -> this.put(key, plainText));
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data) {
+    return this.tool.encrypt(data);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+    return this.tool.encrypt(data, iv);
+  }
+
+  /**
+   * Remove every entry from the cache.
+   */
+  public void invalidateAll() {
+    synchronized (this.entries) {
+      for (CacheEntry entry : this.entries.values()) {
+        this.discard(entry);
+      }
+      this.entries.clear();
+    }
+  }
+
+  public long getHitCount() {
+    return this.hits.sum();
+  }
+
+  public long getMissCount() {
+    return this.misses.sum();
+  }
+
+  /**
+   * The number of entries removed to make room for new ones. Expired and
+   * invalidated entries are not counted.
+   */
+  public long getEvictionCount() {
+    return this.evictions.sum();
+  }
+
+  public int size() {
+    synchronized (this.entries) {
+      return this.entries.size();
+    }
+  }
+
+  /**
+   * The number of bytes currently held by the cache.
+   */
+  public long weight() {
+    synchronized (this.entries) {
+      return this.weight;
+    }
+  }
+
+  private void put(CacheKey key, byte[] plainText) {
+    // Copy so later changes to the caller's arrays cannot alter the cache.
+    CacheKey ownedKey = key.copy();
+    CacheEntry entry = new CacheEntry(plainText.clone(), System.nanoTime());
+    entry.weight = ENTRY_OVERHEAD + ownedKey.iv.length + ownedKey.data.length + plainText.length;
+
+    if (entry.weight > this.maximumWeight) {
+      return;
+    }
+
+    synchronized (this.entries) {
+      CacheEntry previous = this.entries.put(ownedKey, entry);
+      if (previous != null) {
+        this.discard(previous);
+      }
+      this.weight += entry.weight;
+
+      Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = this.entries.entrySet().iterator();
+      while (this.weight > this.maximumWeight && iterator.hasNext()) {
+        CacheEntry eldest = iterator.next().getValue();
+        iterator.remove();
+        this.discard(eldest);
+        this.evictions.increment();
+      }
+    }
+  }
+
+  // Must be called while holding the entries lock.
+  private void discard(CacheEntry entry) {
+    this.weight -= entry.weight;
+
+    if (this.zeroEvicted) {
+      Arrays.fill(entry.plainText, (byte) 0);
+    }
+  }
+
+  private static class CacheEntry {
+    final byte[] plainText;
+    final long created;
+    long weight;
+
+    CacheEntry(byte[] plainText, long created) {
+      this.plainText = plainText;
+      this.created = created;
+    }
+  }
+
+  private static class CacheKey {
+    final AlgorithmId algorithmId;
+    final byte[] iv;
+    final byte[] data;
+    final int hash;
+
+    CacheKey(AlgorithmId algorithmId, byte[] iv, byte[] data) {
+      this(
+        algorithmId,
+        iv,
+        data,
+        31 * (31 * Objects.hashCode(algorithmId) + Arrays.hashCode(iv)) + Arrays.hashCode(data)
+      );
+    }
+
+    private CacheKey(AlgorithmId algorithmId, byte[] iv, byte[] data, int hash) {
+      this.algorithmId = algorithmId;
+      this.iv = iv;
+      this.data = data;
+      this.hash = hash;
+    }
+
+    CacheKey copy() {
+      return new CacheKey(this.algorithmId, this.iv.clone(), this.data.clone(), this.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CacheKey)) {
+        return false;
+      }
+
+      CacheKey key = (CacheKey) other;
+      return this.hash == key.hash &&
+        this.algorithmId == key.algorithmId &&
+        Arrays.equals(this.iv, key.iv) &&
+        Arrays.equals(this.data, key.data);
+    }
+  }
+}
@@ -39,11 +39,13 @@ public class CipherConstants {
   public static final String MODE_GCM = "GCM";
   public static final String MODE_OFB = "OFB";
   public static final String MODE_PCBC = "PCBC";
+  public static final String MODE_SIV = "SIV";
 
   // Paddings
   public static final String PAD_NONE = "NoPadding";
   public static final String PAD_ISO10126 = "ISO10126Padding";
   public static final String PAD_OAE = "OAEPadding";
+  public static final String PAD_OAEP_SHA256 = "OAEPWithSHA-256AndMGF1Padding";
   public static final String PAD_PKCS1 = "PKCS1Padding";
   public static final String PAD_PKCS5 = "PKCS5Padding";
   public static final String PAD_SSL3 = "SSL3Padding";
@@ -61,4 +63,99 @@ public class CipherConstants {
       CipherConstants.PAD_PKCS5
       );
   }
-}
\ No newline at end of file
+
+  /**
+   * AES algorithm using the CBC mode and no padding.
+   *
+   * @return "AES/CBC/NoPadding"
+   * @since 0.4.0
+   */
+  public static String AesCbcNoPad() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_AES,
+      CipherConstants.MODE_CBC,
+      CipherConstants.PAD_NONE
+    );
+  }
+
+  /**
+   * Standard AES algorithm using the CTR mode and no padding.
+   *
+   * @return "AES/CTR/NoPadding"
+   * @since 0.4.0
+   */
+  public static String AesCtrNoPad() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_AES,
+      CipherConstants.MODE_CTR,
+      CipherConstants.PAD_NONE
+    );
+  }
+
+  /**
+   * AES algorithm using the authenticated GCM mode and no padding.
+   *
+   * @return "AES/GCM/NoPadding"
+   * @since 0.4.0
+   */
+  public static String AesGcmNoPad() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_AES,
+      CipherConstants.MODE_GCM,
+      CipherConstants.PAD_NONE
+    );
+  }
+
+  /**
+   * RSA with PKCS #1 v1.5 padding, as used to wrap symmetric session keys.
+   *
+   * @return "RSA/ECB/PKCS1Padding"
+   * @since 0.4.0
+   */
+  public static String RsaEcbPad1() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_RSA,
+      CipherConstants.MODE_ECB,
+      CipherConstants.PAD_PKCS1
+    );
+  }
+
+  /**
+   * RSA with OAEP padding using SHA-256, as used to wrap symmetric session
+   * keys. Pair it with an explicit
+   * {@link javax.crypto.spec.OAEPParameterSpec} that names SHA-256 for MGF1
+   * too; some providers otherwise default MGF1 to SHA-1.
+   *
+   * @return "RSA/ECB/OAEPWithSHA-256AndMGF1Padding"
+   * @since 0.4.0
+   */
+  public static String RsaEcbOaepSha256() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_RSA,
+      CipherConstants.MODE_ECB,
+      CipherConstants.PAD_OAEP_SHA256
+    );
+  }
+
+  /**
+   * AES in the deterministic SIV mode (RFC 5297). This is not a standard
+   * {@link javax.crypto.Cipher} transformation; it identifies the mode
+   * implemented by {@link com.jrfom.crypto.SivCryptoTool}.
+   *
+   * @return "AES/SIV/NoPadding"
+   * @since 0.4.0
+   */
+  public static String AesSiv() {
+    return String.format(
+      "%s/%s/%s",
+      CipherConstants.ALGO_AES,
+      CipherConstants.MODE_SIV,
+      CipherConstants.PAD_NONE
+    );
+  }
+}
@@ -0,0 +1,84 @@
+package com.jrfom.crypto;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * <p>A process wide registry of pinned security providers. When a provider
+ * is pinned for a {@link javax.crypto.Cipher} transformation or a
+ * {@link javax.crypto.Mac} algorithm, instances are requested from that
+ * provider directly instead of searching every installed provider.</p>
+ *
+ * <p>{@link com.jrfom.crypto.AbstractCryptoTool} and
+ * {@link com.jrfom.crypto.HMAC} obtain their instances through this class.
+ * Providers are normally pinned by {@link com.jrfom.crypto.CryptoWarmUp}.</p>
+ *
+ * @since 0.4.0
+ */
+public class CryptoProviders {
+  private static final ConcurrentMap<String, Provider> ciphers = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Provider> macs = new ConcurrentHashMap<>();
+
+  /**
+   * Get a {@link javax.crypto.Cipher} for a transformation, e.g.
+   * "AES/CBC/PKCS5Padding", from its pinned provider if there is one.
+   */
+  public static Cipher cipher(String transformation)
+    throws NoSuchAlgorithmException, NoSuchPaddingException
+  {
+    Provider provider = ciphers.get(transformation);
+    return (provider == null) ?
+      Cipher.getInstance(transformation) :
+      Cipher.getInstance(transformation, provider);
+  }
+
+  /**
+   * Get a {@link javax.crypto.Mac} for an algorithm, e.g. "HmacSHA256",
+   * from its pinned provider if there is one.
+   */
+  public static Mac mac(String algorithm) throws NoSuchAlgorithmException {
+    Provider provider = macs.get(algorithm);
+    return (provider == null) ?
+      Mac.getInstance(algorithm) :
+      Mac.getInstance(algorithm, provider);
+  }
+
+  public static Optional<Provider> getCipherProvider(String transformation) {
+    return Optional.ofNullable(ciphers.get(transformation));
+  }
+
+  public static void pinCipherProvider(String transformation, Provider provider) {
+    ciphers.put(transformation, provider);
+  }
+
+  public static void unpinCipherProvider(String transformation) {
+    ciphers.remove(transformation);
+  }
+
+  public static Optional<Provider> getMacProvider(String algorithm) {
+    return Optional.ofNullable(macs.get(algorithm));
+  }
+
+  public static void pinMacProvider(String algorithm, Provider provider) {
+    macs.put(algorithm, provider);
+  }
+
+  public static void unpinMacProvider(String algorithm) {
+    macs.remove(algorithm);
+  }
+
+  /**
+   * Remove every pinned provider.
+   */
+  public static void clear() {
+    ciphers.clear();
+    macs.clear();
+  }
+}
@@ -18,6 +18,22 @@ public interface CryptoTool {
    */
   Optional<byte[]> decrypt(EncryptedData data);
 
+  /**
+   * Decrypt a specified {@link com.jrfom.crypto.EncryptedDataView}. The
+   * default implementation copies the view into an
+   * {@link com.jrfom.crypto.EncryptedData}; implementations that can read
+   * the backing buffer in place should override it.
+   *
+   * @param view A view of data that has been encrypted using the
+   *             implementations algorithm
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped byte array of the decrypted data.
+   * @since 0.4.0
+   */
+  default Optional<byte[]> decrypt(EncryptedDataView view) {
+    return this.decrypt(view.toEncryptedData());
+  }
+
   /**
    * Encrypt the specified {@code data} using the algorithm of the
    * {@link com.jrfom.crypto.CryptoTool} implementation.
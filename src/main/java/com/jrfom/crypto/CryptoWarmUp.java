@@ -0,0 +1,298 @@
+package com.jrfom.crypto;
+
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Provides methods for moving the one time costs of the JCE (provider
+ * loading, {@link javax.crypto.Cipher#getInstance} resolution, and JIT
+ * compilation) out of the first live request. Call them once at application
+ * startup.</p>
+ *
+ * <p>Warming up resolves the provider for each algorithm and pins it in
+ * {@link com.jrfom.crypto.CryptoProviders}, then runs the encryption and
+ * HMAC code paths repeatedly. The {@code fastest*} methods can additionally
+ * micro-benchmark every installed provider and pin the fastest one.</p>
+ *
+ * @since 0.4.0
+ */
+public class CryptoWarmUp {
+  private static final Logger log = LoggerFactory.getLogger(CryptoWarmUp.class);
+
+  public static final int DEFAULT_ITERATIONS = 5000;
+  public static final int DEFAULT_PAYLOAD_SIZE = 256;
+
+  /**
+   * Warm up a tool using {@link #DEFAULT_ITERATIONS}.
+   *
+   * @see CryptoWarmUp#warmUp(AbstractCryptoTool, int)
+   */
+  public static boolean warmUp(AbstractCryptoTool tool) {
+    return CryptoWarmUp.warmUp(tool, DEFAULT_ITERATIONS);
+  }
+
+  /**
+   * Pin the provider for the tool's algorithm mode (unless one is already
+   * pinned or set on the tool) and run the tool's own encrypt and decrypt
+   * paths {@code iterations} times.
+   *
+   * @param tool A tool that already has its key set
+   * @param iterations The number of encrypt/decrypt round trips to run
+   * @return {@code true} if every round trip succeeded
+   */
+  public static boolean warmUp(AbstractCryptoTool tool, int iterations) {
+    String transformation = tool.getAlgorithmMode();
+
+    if (tool.getProvider() == null &&
+      !CryptoProviders.getCipherProvider(transformation).isPresent())
+    {
+      try {
+        Cipher cipher = Cipher.getInstance(transformation);
+        cipher.init(Cipher.ENCRYPT_MODE, tool.getKey());
+        CryptoProviders.pinCipherProvider(transformation, cipher.getProvider());
+      } catch (GeneralSecurityException e) {
+        log.error("Could not resolve provider for `{}`: `{}`", transformation, e.getMessage());
+        log.debug(e.toString());
+        return false;
+      }
+    }
+
+    byte[] payload = randomBytes(DEFAULT_PAYLOAD_SIZE);
+    for (int i = 0; i < iterations; i += 1) {
+      Optional<byte[]> decrypted = tool.encrypt(payload).flatMap(tool::decrypt);
+      if (!decrypted.isPresent()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Warm up a {@link javax.crypto.Cipher} transformation using a throwaway key
+   * of {@code keyBits} bits.
+   *
+   * @param transformation A transformation, e.g.
+   *                       {@link com.jrfom.crypto.CipherConstants#AesCbcPad5()}
+   * @param keyBits The key size to generate, e.g. 128
+   * @param iterations The number of encrypt/decrypt round trips to run
+   * @return {@code true} if every round trip succeeded
+   */
+  public static boolean warmUpCipher(String transformation, int keyBits, int iterations) {
+    Optional<Key> keyOptional = KeyToolFactory.getInstance()
+      .keyForAlgorithmAtBits(algorithmOf(transformation), keyBits);
+
+    if (!keyOptional.isPresent()) {
+      return false;
+    }
+
+    Key key = keyOptional.get();
+    byte[] payload = randomBytes(DEFAULT_PAYLOAD_SIZE);
+
+    try {
+      Cipher cipher = CryptoProviders.cipher(transformation);
+      for (int i = 0; i < iterations; i += 1) {
+        roundTrip(cipher, key, payload);
+      }
+      CryptoProviders.pinCipherProvider(transformation, cipher.getProvider());
+    } catch (GeneralSecurityException e) {
+      log.error("Could not warm up `{}`: `{}`", transformation, e.getMessage());
+      log.debug(e.toString());
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Warm up an HMAC algorithm using a throwaway key.
+   *
+   * @param algorithm An algorithm such as {@link com.jrfom.crypto.HMAC#ALGO_SHA256}
+   * @param iterations The number of HMACs to compute
+   * @return {@code true} if every computation succeeded
+   */
+  public static boolean warmUpHmac(String algorithm, int iterations) {
+    Key key = new SecretKeySpec(randomBytes(32), algorithm);
+    byte[] payload = randomBytes(DEFAULT_PAYLOAD_SIZE);
+
+    try {
+      Mac mac = CryptoProviders.mac(algorithm);
+      mac.init(key);
+      CryptoProviders.pinMacProvider(algorithm, mac.getProvider());
+    } catch (GeneralSecurityException e) {
+      log.error("Could not resolve provider for `{}`: `{}`", algorithm, e.getMessage());
+      log.debug(e.toString());
+      return false;
+    }
+
+    for (int i = 0; i < iterations; i += 1) {
+      if (!HMAC.forDataWithKeyAndAlgorithm(payload, key, algorithm).isPresent()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * <p>Benchmark every installed provider that supports a transformation and
+   * return the one with the highest throughput. Each provider is warmed up
+   * for {@code durationMillis} and then measured for the same period.</p>
+   *
+   * <p>The result is not pinned; pass it to
+   * {@link com.jrfom.crypto.CryptoProviders#pinCipherProvider}.</p>
+   *
+   * @param transformation The transformation to benchmark
+   * @param key A key suitable for the transformation
+   * @param payloadSize The size of each encrypted message
+   * @param durationMillis How long to warm up and measure each provider
+   * @return An empty {@link java.util.Optional} if no provider supports the
+   *         transformation. Otherwise an Optional wrapped fastest provider.
+   */
+  public static Optional<Provider> fastestCipherProvider(String transformation, Key key,
+                                                         int payloadSize, long durationMillis)
+  {
+    Optional<Provider> result = Optional.empty();
+    double best = 0;
+    byte[] payload = randomBytes(payloadSize);
+
+    for (Provider provider : Security.getProviders()) {
+      try {
+        Cipher cipher = Cipher.getInstance(transformation, provider);
+        measure(() -> roundTrip(cipher, key, payload), durationMillis);
+        double opsPerSecond = measure(() -> roundTrip(cipher, key, payload), durationMillis);
+        log.debug("{} with {}: {} ops/s", transformation, provider.getName(), opsPerSecond);
+
+        if (opsPerSecond > best) {
+          best = opsPerSecond;
+          result = Optional.of(provider);
+        }
+      } catch (GeneralSecurityException e) {
+        log.debug("Provider {} does not support {}", provider.getName(), transformation);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * The same as {@link CryptoWarmUp#fastestCipherProvider} except the
+   * provider is also pinned for the transformation.
+   */
+  public static Optional<Provider> pinFastestCipherProvider(String transformation, Key key,
+                                                            int payloadSize, long durationMillis)
+  {
+    Optional<Provider> result =
+      CryptoWarmUp.fastestCipherProvider(transformation, key, payloadSize, durationMillis);
+    result.ifPresent(
+      (provider) -> CryptoProviders.pinCipherProvider(transformation, provider)
+    );
+
+    return result;
+  }
+
+  /**
+   * Benchmark every installed provider that supports an HMAC algorithm and
+   * return the one with the highest throughput.
+   *
+   * @see CryptoWarmUp#fastestCipherProvider
+   */
+  public static Optional<Provider> fastestMacProvider(String algorithm, Key key,
+                                                      int payloadSize, long durationMillis)
+  {
+    Optional<Provider> result = Optional.empty();
+    double best = 0;
+    byte[] payload = randomBytes(payloadSize);
+
+    for (Provider provider : Security.getProviders()) {
+      try {
+        Mac mac = Mac.getInstance(algorithm, provider);
+        mac.init(key);
+        measure(() -> mac.doFinal(payload), durationMillis);
+        double opsPerSecond = measure(() -> mac.doFinal(payload), durationMillis);
+        log.debug("{} with {}: {} ops/s", algorithm, provider.getName(), opsPerSecond);
+
+        if (opsPerSecond > best) {
+          best = opsPerSecond;
+          result = Optional.of(provider);
+        }
+      } catch (GeneralSecurityException e) {
+        log.debug("Provider {} does not support {}", provider.getName(), algorithm);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * The same as {@link CryptoWarmUp#fastestMacProvider} except the provider
+   * is also pinned for the algorithm.
+   */
+  public static Optional<Provider> pinFastestMacProvider(String algorithm, Key key,
+                                                         int payloadSize, long durationMillis)
+  {
+    Optional<Provider> result =
+      CryptoWarmUp.fastestMacProvider(algorithm, key, payloadSize, durationMillis);
+    result.ifPresent(
+      (provider) -> CryptoProviders.pinMacProvider(algorithm, provider)
+    );
+
+    return result;
+  }
+
+  private interface Operation {
+    void run() throws GeneralSecurityException;
+  }
+
+  private static double measure(Operation operation, long durationMillis)
+    throws GeneralSecurityException
+  {
+    long start = System.nanoTime();
+    long deadline = start + durationMillis * 1_000_000L;
+    long count = 0;
+    long now;
+
+    do {
+      operation.run();
+      count += 1;
+      now = System.nanoTime();
+    } while (now < deadline);
+
+    return count * 1e9 / (now - start);
+  }
+
+  private static void roundTrip(Cipher cipher, Key key, byte[] payload)
+    throws GeneralSecurityException
+  {
+    // Let the provider generate the IV so any mode (including GCM) works.
+    cipher.init(Cipher.ENCRYPT_MODE, key);
+    byte[] encrypted = cipher.doFinal(payload);
+    AlgorithmParameters parameters = cipher.getParameters();
+
+    cipher.init(Cipher.DECRYPT_MODE, key, parameters);
+    cipher.doFinal(encrypted);
+  }
+
+  private static String algorithmOf(String transformation) {
+    int slash = transformation.indexOf('/');
+    return (slash == -1) ? transformation : transformation.substring(0, slash);
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] bytes = new byte[size];
+    new SecureRandom().nextBytes(bytes);
+    return bytes;
+  }
+}
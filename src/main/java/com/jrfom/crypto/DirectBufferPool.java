@@ -0,0 +1,109 @@
+package com.jrfom.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A pool of direct (off-heap) {@link java.nio.ByteBuffer}s for large
+ * plaintext and ciphertext working buffers. Using it with
+ * {@link com.jrfom.crypto.AbstractCryptoTool#encrypt(ByteBuffer, DirectBufferPool)}
+ * and {@link com.jrfom.crypto.AbstractCryptoTool#decrypt(EncryptedDataView, DirectBufferPool)}
+ * keeps multi-megabyte payloads out of the Java heap.</p>
+ *
+ * <p>Buffers are grouped into power of two size classes from
+ * {@link #MINIMUM_BUFFER_SIZE} up to the pool's maximum buffer size. Larger
+ * requests are allocated directly and not retained. Buffers must be returned
+ * with {@link DirectBufferPool#release}; by default they are zeroed on
+ * release so secrets do not linger in native memory.</p>
+ *
+ * <p>Instances are thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class DirectBufferPool {
+  public static final int MINIMUM_BUFFER_SIZE = 4096;
+  public static final int DEFAULT_MAXIMUM_BUFFER_SIZE = 64 * 1024 * 1024;
+  public static final int DEFAULT_RETAINED_PER_CLASS = 8;
+
+  private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(MINIMUM_BUFFER_SIZE);
+
+  private final SizeClassPool<ByteBuffer> pool;
+  private final boolean zeroOnRelease;
+
+  /**
+   * Create a pool with the default limits that zeroes released buffers.
+   */
+  public DirectBufferPool() {
+    this(DEFAULT_MAXIMUM_BUFFER_SIZE, DEFAULT_RETAINED_PER_CLASS, true);
+  }
+
+  /**
+   * @param maximumBufferSize The largest buffer the pool will retain. It is
+   *                          rounded up to a power of two.
+   * @param retainedPerClass The maximum number of idle buffers kept for each
+   *                         size class
+   * @param zeroOnRelease Whether released buffers are overwritten with zeros
+   */
+  public DirectBufferPool(int maximumBufferSize, int retainedPerClass, boolean zeroOnRelease) {
+    this.pool = new SizeClassPool<>(MINIMUM_BUFFER_SIZE, maximumBufferSize, retainedPerClass);
+    this.zeroOnRelease = zeroOnRelease;
+  }
+
+  /**
+   * Get a direct buffer with at least {@code capacity} bytes. The returned
+   * buffer's position is zero and its limit is {@code capacity}; its actual
+   * capacity may be larger.
+   *
+   * @param capacity The number of bytes needed
+   * @return A direct buffer that should be given back with
+   *         {@link DirectBufferPool#release}
+   */
+  public ByteBuffer acquire(int capacity) {
+    ByteBuffer buffer = null;
+
+    if (capacity <= this.pool.getMaximumSize()) {
+      buffer = this.pool.poll(capacity);
+
+      if (buffer == null) {
+        buffer = ByteBuffer.allocateDirect(this.pool.classSize(capacity));
+      }
+    } else {
+      buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    buffer.clear();
+    buffer.limit(capacity);
+    return buffer;
+  }
+
+  /**
+   * Return a buffer obtained from {@link DirectBufferPool#acquire}. The
+   * buffer must not be used after it has been released.
+   *
+   * @param buffer The buffer to return to the pool
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect()) {
+      return;
+    }
+
+    if (this.zeroOnRelease) {
+      zero(buffer);
+    }
+
+    if (this.pool.isClassSize(buffer.capacity())) {
+      this.pool.offer(buffer, buffer.capacity());
+    }
+  }
+
+  private static void zero(ByteBuffer buffer) {
+    buffer.clear();
+
+    while (buffer.hasRemaining()) {
+      ByteBuffer zeros = ZEROS.duplicate();
+      zeros.limit(Math.min(zeros.capacity(), buffer.remaining()));
+      buffer.put(zeros);
+    }
+
+    buffer.clear();
+  }
+}
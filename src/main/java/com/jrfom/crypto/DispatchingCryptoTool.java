@@ -0,0 +1,260 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link com.jrfom.crypto.CryptoTool} that decrypts each
+ * {@link com.jrfom.crypto.EncryptedData} with the tool for the
+ * {@link com.jrfom.crypto.AlgorithmId} it is tagged with. Data written in
+ * several formats, e.g. during a move from CBC to GCM, can be read side by
+ * side without knowing the format of each record and without trial
+ * decryption.</p>
+ *
+ * <p>The tag is not authenticated, so anyone who can modify stored data can
+ * change it. Decryption is therefore limited to an allow-list of accepted
+ * identifiers, which by default holds only the identifier used to encrypt;
+ * data tagged with any other identifier is rejected without being
+ * decrypted. Registering a tool accepts its identifier. Each accepted
+ * transformation should use its own key: decrypting GCM ciphertext as CTR
+ * under the same key, for example, skips the authentication check
+ * entirely.</p>
+ *
+ * <p>Tools are created on first use by a factory and cached, one per
+ * identifier, so dispatching costs an array lookup. Tools can also be
+ * registered directly, which is how tools for legacy formats and tools with
+ * their own key requirements, such as
+ * {@link com.jrfom.crypto.SivCryptoTool}, are added. Untagged data, as
+ * written before tags existed, is treated as tagged with
+ * {@link com.jrfom.crypto.AlgorithmId#AES_CBC_PKCS5} unless configured
+ * otherwise, and is decrypted only if that identifier is accepted.</p>
+ *
+ * <p>Encryption always uses one identifier, and the result is tagged with
+ * it. Instances are thread safe provided the dispatched tools are.</p>
+ *
+ * @since 0.4.0
+ */
+public class DispatchingCryptoTool implements CryptoTool {
+  private static final Logger log = LoggerFactory.getLogger(DispatchingCryptoTool.class);
+
+  private final AlgorithmId encryptWith;
+  private final Function<AlgorithmId, ? extends CryptoTool> factory;
+  private final AtomicReferenceArray<CryptoTool> tools =
+    new AtomicReferenceArray<>(AlgorithmId.values().length);
+  private volatile AlgorithmId untagged = AlgorithmId.AES_CBC_PKCS5;
+  private volatile Set<AlgorithmId> accepted;
+
+  /**
+   * Create an instance that encrypts and decrypts with the
+   * {@code encryptWith} transformation under {@code key}. No tool for any
+   * other transformation is derived from the key; register a tool, with its
+   * own key, for each other format that should be read. AES-SIV requires a
+   * key of twice the size, so it must always be registered.
+   *
+   * @param key A {@link java.security.Key} instance set to the "AES"
+   *            algorithm
+   * @param encryptWith The identifier of the transformation used to encrypt
+   */
+  public DispatchingCryptoTool(Key key, AlgorithmId encryptWith) {
+    this(
+      encryptWith,
+      (algorithmId) -> (algorithmId == encryptWith) ?
+        DispatchingCryptoTool.aesTool(key, algorithmId) :
+        null
+    );
+  }
+
+  /**
+   * @param encryptWith The identifier of the transformation used to encrypt
+   * @param factory Creates the tool for an identifier the first time it is
+   *                needed. It may return {@code null} if it cannot. Decryption
+   *                only asks for accepted identifiers.
+   */
+  public DispatchingCryptoTool(AlgorithmId encryptWith,
+                               Function<AlgorithmId, ? extends CryptoTool> factory)
+  {
+    this.encryptWith = encryptWith;
+    this.factory = factory;
+    this.accepted = Collections.unmodifiableSet(EnumSet.of(encryptWith));
+  }
+
+  /**
+   * Decrypt data with the tool for its tag, if the tag is accepted.
+   *
+   * @return An empty {@link java.util.Optional} if the tag is not accepted,
+   *         there is no tool for it, or decryption fails. Otherwise an
+   *         Optional wrapped byte array of the decrypted data.
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedData data) {
+    AlgorithmId algorithmId = (data.getAlgorithmId() == null) ?
+      this.untagged :
+      data.getAlgorithmId();
+
+    return this.getAcceptedTool(algorithmId).flatMap((tool) -> tool.decrypt(data));
+  }
+
+  /**
+   * Decrypt a {@link com.jrfom.crypto.EncryptedDataView}. Views carry no
+   * tag, so they are decrypted as untagged data.
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedDataView view) {
+    return this.getAcceptedTool(this.untagged).flatMap((tool) -> tool.decrypt(view));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data) {
+    return this.getTool(this.encryptWith)
+      .flatMap((tool) -> tool.encrypt(data))
+      .map(this::tag);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+    return this.getTool(this.encryptWith)
+      .flatMap((tool) -> tool.encrypt(data, iv))
+      .map(this::tag);
+  }
+
+  /**
+   * Use {@code tool} for data tagged with {@code algorithmId}, replacing any
+   * tool that was created or registered for it before, and accept the
+   * identifier for decryption.
+   *
+   * @param algorithmId The identifier the tool handles
+   * @param tool The tool to use
+   */
+  public void register(AlgorithmId algorithmId, CryptoTool tool) {
+    this.tools.set(algorithmId.ordinal(), tool);
+
+    synchronized (this.tools) {
+      EnumSet<AlgorithmId> accepted = EnumSet.copyOf(this.accepted);
+      accepted.add(algorithmId);
+      this.accepted = Collections.unmodifiableSet(accepted);
+    }
+  }
+
+  /**
+   * Get the tool for an identifier, creating it if this is the first time
+   * it is needed.
+   *
+   * @param algorithmId The identifier to get the tool for
+   * @return An empty {@link java.util.Optional} if there is no tool for the
+   *         identifier. Otherwise the Optional wrapped tool.
+   */
+  public Optional<CryptoTool> getTool(AlgorithmId algorithmId) {
+    CryptoTool tool = this.tools.get(algorithmId.ordinal());
+
+    if (tool == null) {
+      synchronized (this.tools) {
+        tool = this.tools.get(algorithmId.ordinal());
+
+        if (tool == null) {
+          tool = this.factory.apply(algorithmId);
+          this.tools.set(algorithmId.ordinal(), tool);
+        }
+      }
+    }
+
+    if (tool == null) {
+      log.error("No tool is available for `{}`", algorithmId.getTransformation());
+    }
+
+    return Optional.ofNullable(tool);
+  }
+
+  public AlgorithmId getEncryptWith() {
+    return this.encryptWith;
+  }
+
+  /**
+   * The identifiers whose data is decrypted. Data tagged with any other
+   * identifier is rejected.
+   */
+  public Set<AlgorithmId> getAccepted() {
+    return this.accepted;
+  }
+
+  /**
+   * Define the identifiers whose data is decrypted, replacing those
+   * accepted by default and by {@link DispatchingCryptoTool#register}. Only
+   * accept identifiers whose tools use distinct keys.
+   *
+   * @param accepted
+   */
+  public void setAccepted(Set<AlgorithmId> accepted) {
+    EnumSet<AlgorithmId> copy = EnumSet.noneOf(AlgorithmId.class);
+    copy.addAll(accepted);
+
+    synchronized (this.tools) {
+      this.accepted = Collections.unmodifiableSet(copy);
+    }
+  }
+
+  public AlgorithmId getUntagged() {
+    return this.untagged;
+  }
+
+  /**
+   * Define the identifier assumed for untagged data.
+   *
+   * @param untagged
+   */
+  public void setUntagged(AlgorithmId untagged) {
+    this.untagged = untagged;
+  }
+
+  private Optional<CryptoTool> getAcceptedTool(AlgorithmId algorithmId) {
+    if (!this.accepted.contains(algorithmId)) {
+      log.error("Data tagged `{}` is not accepted", algorithmId.getTransformation());
+      return Optional.empty();
+    }
+
+    return this.getTool(algorithmId);
+  }
+
+  private EncryptedData tag(EncryptedData encryptedData) {
+    if (encryptedData.getAlgorithmId() == null) {
+      encryptedData.setAlgorithmId(this.encryptWith);
+    }
+
+    return encryptedData;
+  }
+
+  private static CryptoTool aesTool(Key key, AlgorithmId algorithmId) {
+    CryptoTool result = null;
+
+    if (algorithmId == AlgorithmId.AES_CBC_PKCS5) {
+      result = new AesCryptoTool(key);
+    } else if (algorithmId != AlgorithmId.AES_SIV) {
+      try {
+        result = ImmutableCryptoTool.builder()
+          .algorithm(algorithmId.getAlgorithm())
+          .mode(algorithmId.getMode())
+          .padding(algorithmId.getPadding())
+          .key(key)
+          .build();
+      } catch (IllegalStateException e) {
+        log.error("Could not create tool: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,23 @@
+package com.jrfom.crypto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks a property whose value is encrypted when the enclosing object is
+ * serialized with Jackson, and decrypted when it is deserialized. The value
+ * is written as a serialized {@link com.jrfom.crypto.EncryptedData}
+ * object.</p>
+ *
+ * <p>The annotation has no effect unless an
+ * {@link com.jrfom.crypto.EncryptionModule} is registered with the
+ * {@link com.fasterxml.jackson.databind.ObjectMapper}.</p>
+ *
+ * @since 0.4.0
+ */
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Encrypted {
+}
@@ -14,24 +14,37 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.jrfom.crypto.deserializers.EncryptedDataDeserializer;
+import com.jrfom.crypto.jfr.CryptoEvents;
+import com.jrfom.crypto.jfr.CryptoTrace;
 import com.jrfom.crypto.serializers.EncryptedDataSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * An {@linkplain com.jrfom.crypto.EncryptedData} instance represents a block
+ * <p>An {@linkplain com.jrfom.crypto.EncryptedData} instance represents a block
  * of encrypted data. The instance includes the encrypted data and the
- * Initialization Vector that was used to perform the encryption.
+ * Initialization Vector that was used to perform the encryption.</p>
+ *
+ * <p>It may also carry the {@link com.jrfom.crypto.AlgorithmId} of the
+ * transformation that produced it. The identifier is serialized as the
+ * "alg" number only when it is set, so untagged data keeps its original
+ * form.</p>
  */
 @JsonDeserialize(using = EncryptedDataDeserializer.class)
 @JsonSerialize(using = EncryptedDataSerializer.class)
 public class EncryptedData {
   private static final Logger log = LoggerFactory.getLogger(EncryptedData.class);
 
+  // ObjectMapper is thread safe once configured; sharing it lets Jackson
+  // cache the (de)serializers instead of rebuilding them for every record.
+  private static final ObjectMapper mapper = new ObjectMapper();
+
   @JsonProperty("iv")
   private byte[] iv;
   @JsonProperty("data")
   private byte[] data;
+  @JsonProperty("alg")
+  private AlgorithmId algorithmId;
 
   public EncryptedData() {}
 
@@ -40,6 +53,19 @@ public class EncryptedData {
     this.data = data;
   }
 
+  /**
+   * @param iv The initialization vector used for the encryption
+   * @param data The encrypted data
+   * @param algorithmId The transformation that produced {@code data}, or
+   *                    {@code null} if it is not known
+   * @since 0.4.0
+   */
+  public EncryptedData(byte[] iv, byte[] data, AlgorithmId algorithmId) {
+    this.iv = iv;
+    this.data = data;
+    this.algorithmId = algorithmId;
+  }
+
   /**
    * Create a new instance of {@linkplain com.jrfom.crypto.EncryptedData} given
    * a {@link java.util.Base64} encoded string that represents a JSON
@@ -77,9 +103,9 @@ public class EncryptedData {
    */
   public static Optional<EncryptedData> fromJSON(String json) {
     Optional<EncryptedData> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.json("parse");
 
     try {
-      ObjectMapper mapper = new ObjectMapper();
       EncryptedData encryptedData = mapper.readValue(json, EncryptedData.class);
 
       result = Optional.of(encryptedData);
@@ -94,6 +120,7 @@ public class EncryptedData {
       log.debug(e.toString());
     }
 
+    trace.end(json.length(), result.isPresent());
     return result;
   }
 
@@ -113,6 +140,35 @@ public class EncryptedData {
     this.data = data;
   }
 
+  /**
+   * The transformation that produced the data, or {@code null} if the data
+   * is untagged.
+   *
+   * @since 0.4.0
+   */
+  public AlgorithmId getAlgorithmId() {
+    return this.algorithmId;
+  }
+
+  public void setAlgorithmId(AlgorithmId algorithmId) {
+    this.algorithmId = algorithmId;
+  }
+
+  /**
+   * Return the IV array to a {@link com.jrfom.crypto.ByteArrayPool} and clear
+   * it from this instance. Call this only once the IV, and any reference to
+   * it obtained from {@link com.jrfom.crypto.EncryptedData#getIv}, is no
+   * longer needed. The encrypted data is never drawn from a pool, so it is
+   * left untouched.
+   *
+   * @param pool The pool to return the IV to
+   * @since 0.4.0
+   */
+  public void release(ByteArrayPool pool) {
+    pool.release(this.iv);
+    this.iv = null;
+  }
+
   /**
    * Serializes the {@linkplain com.jrfom.crypto.EncryptedData} instance
    * to JSON and returns the result.
@@ -124,13 +180,15 @@ public class EncryptedData {
   @JsonIgnore
   public String toString() {
     String result = "not serialized";
+    boolean serialized = false;
+    CryptoTrace trace = CryptoEvents.json("serialize");
 
     try {
-      ObjectMapper mapper = new ObjectMapper();
       ByteArrayOutputStream stream = new ByteArrayOutputStream();
       mapper.writeValue(stream, this);
 
       result = stream.toString();
+      serialized = true;
     } catch (JsonMappingException e) {
       log.error("Could not map JSON to object: `{}`", e.getMessage());
       log.debug(e.toString());
@@ -142,6 +200,7 @@ public class EncryptedData {
       log.debug(e.toString());
     }
 
+    trace.end(serialized ? result.length() : 0, serialized);
     return result;
   }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.jrfom.crypto;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * <p>An {@linkplain com.jrfom.crypto.EncryptedDataView} is the zero-copy
+ * counterpart of {@link com.jrfom.crypto.EncryptedData}. Instead of owning
+ * its Initialization Vector and encrypted data, it describes where they live
+ * inside a larger, shared buffer (e.g. a read buffer holding many
+ * concatenated records).</p>
+ *
+ * <p>Offsets are absolute indexes into the backing buffer; the buffer's
+ * position and limit are neither used nor modified. The view does not copy
+ * the backing buffer, so the buffer must not be modified while the view is
+ * in use.</p>
+ *
+ * <p>Instances can be decrypted directly with
+ * {@link com.jrfom.crypto.AbstractCryptoTool#decrypt(EncryptedDataView)}.</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptedDataView {
+  private final ByteBuffer buffer;
+  private final int ivOffset;
+  private final int ivLength;
+  private final int dataOffset;
+  private final int dataLength;
+
+  /**
+   * Create a view over a byte array.
+   *
+   * @param buffer The array that holds the IV and the encrypted data
+   * @param ivOffset Index of the first IV byte
+   * @param ivLength Number of IV bytes
+   * @param dataOffset Index of the first encrypted byte
+   * @param dataLength Number of encrypted bytes
+   */
+  public EncryptedDataView(byte[] buffer, int ivOffset, int ivLength,
+                           int dataOffset, int dataLength)
+  {
+    this(ByteBuffer.wrap(buffer), ivOffset, ivLength, dataOffset, dataLength);
+  }
+
+  /**
+   * Create a view over a {@link java.nio.ByteBuffer}. Both heap and direct
+   * buffers are supported.
+   *
+   * @param buffer The buffer that holds the IV and the encrypted data
+   * @param ivOffset Absolute index of the first IV byte
+   * @param ivLength Number of IV bytes
+   * @param dataOffset Absolute index of the first encrypted byte
+   * @param dataLength Number of encrypted bytes
+   */
+  public EncryptedDataView(ByteBuffer buffer, int ivOffset, int ivLength,
+                           int dataOffset, int dataLength)
+  {
+    checkRange(buffer.capacity(), ivOffset, ivLength);
+    checkRange(buffer.capacity(), dataOffset, dataLength);
+
+    this.buffer = buffer;
+    this.ivOffset = ivOffset;
+    this.ivLength = ivLength;
+    this.dataOffset = dataOffset;
+    this.dataLength = dataLength;
+  }
+
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  public int getIvOffset() {
+    return this.ivOffset;
+  }
+
+  public int getIvLength() {
+    return this.ivLength;
+  }
+
+  public int getDataOffset() {
+    return this.dataOffset;
+  }
+
+  public int getDataLength() {
+    return this.dataLength;
+  }
+
+  /**
+   * Copy the IV out of the backing buffer.
+   *
+   * @return A new array containing the IV bytes
+   */
+  public byte[] getIv() {
+    return this.copy(this.ivOffset, this.ivLength);
+  }
+
+  /**
+   * Copy the encrypted data out of the backing buffer.
+   *
+   * @return A new array containing the encrypted bytes
+   */
+  public byte[] getData() {
+    return this.copy(this.dataOffset, this.dataLength);
+  }
+
+  /**
+   * Copy the viewed bytes into a standalone
+   * {@link com.jrfom.crypto.EncryptedData} instance.
+   *
+   * @return A new {@link com.jrfom.crypto.EncryptedData} instance
+   */
+  public EncryptedData toEncryptedData() {
+    return new EncryptedData(this.getIv(), this.getData());
+  }
+
+  /**
+   * Build an {@link javax.crypto.spec.IvParameterSpec} for the viewed IV.
+   * Array backed buffers are read in place.
+   */
+  IvParameterSpec ivParameterSpec() {
+    if (this.buffer.hasArray()) {
+      return new IvParameterSpec(
+        this.buffer.array(),
+        this.buffer.arrayOffset() + this.ivOffset,
+        this.ivLength
+      );
+    }
+
+    return new IvParameterSpec(this.getIv());
+  }
+
+  /**
+   * A duplicate of the backing buffer whose position and limit bound the
+   * encrypted data. The backing buffer itself is left untouched.
+   */
+  ByteBuffer dataBuffer() {
+    ByteBuffer duplicate = this.buffer.duplicate();
+    duplicate.limit(this.dataOffset + this.dataLength);
+    duplicate.position(this.dataOffset);
+    return duplicate;
+  }
+
+  private byte[] copy(int offset, int length) {
+    byte[] result = new byte[length];
+    ByteBuffer duplicate = this.buffer.duplicate();
+    duplicate.limit(offset + length);
+    duplicate.position(offset);
+    duplicate.get(result);
+    return result;
+  }
+
+  private static void checkRange(int capacity, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > capacity - length) {
+      throw new IndexOutOfBoundsException(String.format(
+        "Range [%d, %d) is outside of buffer capacity %d",
+        offset,
+        offset + length,
+        capacity
+      ));
+    }
+  }
+}
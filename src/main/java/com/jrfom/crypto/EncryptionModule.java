@@ -0,0 +1,93 @@
+package com.jrfom.crypto;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.jrfom.crypto.deserializers.EncryptedFieldDeserializer;
+import com.jrfom.crypto.serializers.EncryptedFieldSerializer;
+
+/**
+ * <p>A Jackson module that transparently encrypts properties annotated with
+ * {@link com.jrfom.crypto.Encrypted}, using a shared
+ * {@link com.jrfom.crypto.CryptoTool}:</p>
+ *
+ * <pre>
+ * ObjectMapper mapper = new ObjectMapper();
+ * mapper.registerModule(new EncryptionModule(new AesCryptoTool(key)));
+ * </pre>
+ *
+ * <p>Each annotated property is serialized to JSON bytes with its normal
+ * serializer, encrypted, and written as an
+ * {@link com.jrfom.crypto.EncryptedData} object. The property serializers
+ * and deserializers are installed once, when Jackson builds (and caches)
+ * the serializer or deserializer of the enclosing type.</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptionModule extends SimpleModule {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * @param tool The tool used to encrypt and decrypt annotated properties.
+   *             It must be safe for concurrent use.
+   */
+  public EncryptionModule(CryptoTool tool) {
+    super("EncryptionModule");
+
+    JsonFactory factory = new JsonFactory();
+
+    this.setSerializerModifier(new BeanSerializerModifier() {
+      @Override
+      public List<BeanPropertyWriter> changeProperties(SerializationConfig config,
+                                                       BeanDescription beanDesc,
+                                                       List<BeanPropertyWriter> beanProperties)
+      {
+        for (BeanPropertyWriter writer : beanProperties) {
+          if (writer.getAnnotation(Encrypted.class) != null) {
+            writer.assignSerializer(new EncryptedFieldSerializer(tool, factory, writer));
+          }
+        }
+
+        return beanProperties;
+      }
+    });
+
+    this.setDeserializerModifier(new BeanDeserializerModifier() {
+      @Override
+      public BeanDeserializerBuilder updateBuilder(DeserializationConfig config,
+                                                   BeanDescription beanDesc,
+                                                   BeanDeserializerBuilder builder)
+      {
+        List<SettableBeanProperty> encrypted = new ArrayList<>();
+        Iterator<SettableBeanProperty> properties = builder.getProperties();
+
+        while (properties.hasNext()) {
+          SettableBeanProperty property = properties.next();
+          if (property.getAnnotation(Encrypted.class) != null) {
+            encrypted.add(property);
+          }
+        }
+
+        for (SettableBeanProperty property : encrypted) {
+          builder.addOrReplaceProperty(
+            property.withValueDeserializer(new EncryptedFieldDeserializer(tool, factory)),
+            true
+          );
+        }
+
+        return builder;
+      }
+    });
+  }
+}
@@ -8,6 +8,8 @@ import java.util.Optional;
 
 import javax.crypto.Mac;
 
+import com.jrfom.crypto.jfr.CryptoEvents;
+import com.jrfom.crypto.jfr.CryptoTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,10 +72,12 @@ public class HMAC {
   public static Optional<String> forDataWithKeyAndAlgorithm(byte[] data, Key key, String algorithm)
   {
     Optional<String> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.hmac(algorithm);
 
     try {
-      Mac mac = Mac.getInstance(algorithm);
+      Mac mac = CryptoProviders.mac(algorithm);
       mac.init(key);
+      trace.phase(CryptoTrace.Phase.SETUP);
 
       byte[] encryptedBytes = mac.doFinal(data);
       String b64hash = Base64.getEncoder().encodeToString(encryptedBytes);
@@ -86,6 +90,7 @@ public class HMAC {
       log.debug(e.toString());
     }
 
+    trace.end(data.length, result.isPresent());
     return result;
   }
 }
\ No newline at end of file
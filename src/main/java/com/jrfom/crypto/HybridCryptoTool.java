@@ -0,0 +1,355 @@
+package com.jrfom.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Hybrid RSA and AES encryption. Payloads are encrypted with
+ * {@link com.jrfom.crypto.CipherConstants#AesGcmNoPad()} using a random AES
+ * session key, and the session key is wrapped with the recipient's RSA
+ * public key using {@link com.jrfom.crypto.CipherConstants#RsaEcbOaepSha256()}.
+ * The wrapped key travels with every message in a
+ * {@link com.jrfom.crypto.HybridEncryptedData} and is authenticated as GCM
+ * additional data, so neither the payload nor the key it is bound to can be
+ * altered or swapped without decryption failing.</p>
+ *
+ * <p>RSA operations are far slower than AES, so the cost is amortized on
+ * both sides:</p>
+ *
+ * <ul>
+ *   <li>When encrypting, a session key is reused for all messages until it
+ *   has been used for {@code maxMessagesPerSession} messages or is older
+ *   than {@code sessionLifetimeMillis}. Only then is a new key generated
+ *   and wrapped. Since IVs are random, a session never encrypts more than
+ *   {@link #MAX_MESSAGES_PER_SESSION} messages.</li>
+ *   <li>When decrypting, unwrapped session keys are kept in a bounded least
+ *   recently used cache keyed by the wrapped key, so each session key is
+ *   unwrapped once. A key is cached only after a message encrypted with it
+ *   has authenticated, so forged wrapped keys cannot evict real
+ *   sessions.</li>
+ * </ul>
+ *
+ * <p>Every decryption failure, whether unwrapping or authenticating, is
+ * reported the same way. An instance encrypts for one recipient. Either key
+ * may be {@code null} for an instance that only encrypts or only decrypts.
+ * Instances are thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class HybridCryptoTool {
+  private static final Logger log = LoggerFactory.getLogger(HybridCryptoTool.class);
+
+  public static final long DEFAULT_SESSION_LIFETIME_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  public static final long DEFAULT_MAX_MESSAGES_PER_SESSION = 100_000;
+  public static final int DEFAULT_SESSION_CACHE_SIZE = 1024;
+
+  /**
+   * The most messages a session key encrypts with random 96-bit GCM IVs.
+   */
+  public static final long MAX_MESSAGES_PER_SESSION = 1L << 32;
+
+  private static final int GCM_IV_SIZE = 12;
+  private static final int GCM_TAG_BITS = 128;
+  private static final OAEPParameterSpec OAEP_PARAMETERS = new OAEPParameterSpec(
+    "SHA-256",
+    "MGF1",
+    MGF1ParameterSpec.SHA256,
+    PSource.PSpecified.DEFAULT
+  );
+
+  private final PublicKey publicKey;
+  private final PrivateKey privateKey;
+  private final long sessionLifetimeNanos;
+  private final long maxMessagesPerSession;
+  private final int sessionCacheSize;
+  private final SecureRandom random = new SecureRandom();
+
+  private volatile Session session;
+  private final Map<ByteBuffer, Key> sessions;
+
+  private final LongAdder wraps = new LongAdder();
+  private final LongAdder unwraps = new LongAdder();
+
+  /**
+   * Create an instance with the default session lifetime, message limit,
+   * and cache size.
+   *
+   * @param publicKey The recipient's RSA public key, used to encrypt
+   * @param privateKey The RSA private key used to decrypt
+   */
+  public HybridCryptoTool(PublicKey publicKey, PrivateKey privateKey) {
+    this(
+      publicKey,
+      privateKey,
+      DEFAULT_SESSION_LIFETIME_MILLIS,
+      DEFAULT_MAX_MESSAGES_PER_SESSION,
+      DEFAULT_SESSION_CACHE_SIZE
+    );
+  }
+
+  /**
+   * @param publicKey The recipient's RSA public key, used to encrypt
+   * @param privateKey The RSA private key used to decrypt
+   * @param sessionLifetimeMillis How long a session key is used for
+   *                              encryption. Zero or less disables the time
+   *                              limit.
+   * @param maxMessagesPerSession How many messages a session key encrypts.
+   *                              Zero or less, or more than
+   *                              {@link #MAX_MESSAGES_PER_SESSION}, means
+   *                              {@link #MAX_MESSAGES_PER_SESSION}.
+   * @param sessionCacheSize The number of unwrapped session keys retained
+   *                         for decryption
+   */
+  public HybridCryptoTool(PublicKey publicKey, PrivateKey privateKey,
+                          long sessionLifetimeMillis, long maxMessagesPerSession,
+                          int sessionCacheSize)
+  {
+    this.publicKey = publicKey;
+    this.privateKey = privateKey;
+    this.sessionLifetimeNanos = (sessionLifetimeMillis > 0) ?
+      TimeUnit.MILLISECONDS.toNanos(sessionLifetimeMillis) : 0;
+    this.maxMessagesPerSession =
+      (maxMessagesPerSession > 0 && maxMessagesPerSession < MAX_MESSAGES_PER_SESSION) ?
+        maxMessagesPerSession : MAX_MESSAGES_PER_SESSION;
+    this.sessionCacheSize = sessionCacheSize;
+
+    this.sessions = new LinkedHashMap<ByteBuffer, Key>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Key> eldest) {
+        return this.size() > HybridCryptoTool.this.sessionCacheSize;
+      }
+    };
+  }
+
+  /**
+   * Encrypt {@code data} with the current session key, starting a new
+   * session if the current one has expired.
+   *
+   * @param data The data to encrypt
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped
+   *         {@link com.jrfom.crypto.HybridEncryptedData}.
+   */
+  public Optional<HybridEncryptedData> encrypt(byte[] data) {
+    Optional<HybridEncryptedData> result = Optional.empty();
+    Optional<Session> sessionOptional = this.currentSession();
+
+    if (sessionOptional.isPresent()) {
+      Session session = sessionOptional.get();
+      byte[] iv = new byte[GCM_IV_SIZE];
+      this.random.nextBytes(iv);
+
+      try {
+        Cipher cipher = this.payloadCipher(Cipher.ENCRYPT_MODE, session.key, iv, session.wrappedKey);
+        result = Optional.of(
+          new HybridEncryptedData(session.wrappedKey.clone(), iv, cipher.doFinal(data))
+        );
+      } catch (GeneralSecurityException e) {
+        log.error("Could not encrypt data: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Decrypt and authenticate data created by {@link HybridCryptoTool#encrypt}.
+   *
+   * @param data The data to decrypt
+   * @return An empty {@link java.util.Optional} if the data could not be
+   *         decrypted or has been altered. Otherwise an Optional wrapped
+   *         byte array of the decrypted data.
+   */
+  public Optional<byte[]> decrypt(HybridEncryptedData data) {
+    Optional<byte[]> result = Optional.empty();
+    byte[] wrappedKey = data.getWrappedKey();
+
+    if (wrappedKey == null || data.getIv() == null || data.getData() == null) {
+      log.error("Hybrid encrypted data is incomplete");
+      return result;
+    }
+
+    if (this.privateKey == null) {
+      log.error("Private key is empty. Must set a private key to decrypt");
+      return result;
+    }
+
+    Key sessionKey;
+    synchronized (this.sessions) {
+      sessionKey = this.sessions.get(ByteBuffer.wrap(wrappedKey));
+    }
+    boolean cached = (sessionKey != null);
+
+    try {
+      if (!cached) {
+        Cipher cipher = CryptoProviders.cipher(CipherConstants.RsaEcbOaepSha256());
+        cipher.init(Cipher.UNWRAP_MODE, this.privateKey, OAEP_PARAMETERS);
+        sessionKey = cipher.unwrap(wrappedKey, CipherConstants.ALGO_AES, Cipher.SECRET_KEY);
+        this.unwraps.increment();
+      }
+
+      Cipher cipher = this.payloadCipher(Cipher.DECRYPT_MODE, sessionKey, data.getIv(), wrappedKey);
+      result = Optional.of(cipher.doFinal(data.getData()));
+
+      if (!cached) {
+        synchronized (this.sessions) {
+          // Copy so later changes to the caller's array cannot alter the cache.
+          this.sessions.put(ByteBuffer.wrap(wrappedKey.clone()), sessionKey);
+        }
+      }
+    } catch (GeneralSecurityException e) {
+      // A single message for every cause, so failures reveal nothing about
+      // why the wrapped key or payload was rejected.
+      log.error("Could not decrypt hybrid encrypted data");
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Start a new session on the next encryption, e.g. after the recipient's
+   * key has been rotated out of band.
+   */
+  public void rotateSession() {
+    this.session = null;
+  }
+
+  /**
+   * Remove every unwrapped session key from the decryption cache.
+   */
+  public void invalidateSessions() {
+    synchronized (this.sessions) {
+      this.sessions.clear();
+    }
+  }
+
+  /**
+   * The number of session keys wrapped with RSA.
+   */
+  public long getWrapCount() {
+    return this.wraps.sum();
+  }
+
+  /**
+   * The number of session keys unwrapped with RSA.
+   */
+  public long getUnwrapCount() {
+    return this.unwraps.sum();
+  }
+
+  /**
+   * The number of unwrapped session keys in the decryption cache.
+   */
+  public int getCachedSessionCount() {
+    synchronized (this.sessions) {
+      return this.sessions.size();
+    }
+  }
+
+  private Cipher payloadCipher(int mode, Key key, byte[] iv, byte[] wrappedKey)
+    throws GeneralSecurityException
+  {
+    Cipher cipher = CryptoProviders.cipher(CipherConstants.AesGcmNoPad());
+    cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+    cipher.updateAAD(wrappedKey);
+    return cipher;
+  }
+
+  private Optional<Session> currentSession() {
+    Session current = this.session;
+
+    if (current != null && current.claim(this)) {
+      return Optional.of(current);
+    }
+
+    synchronized (this) {
+      current = this.session;
+
+      // Another thread may have started a fresh session while this one waited.
+      if (current != null && current.claim(this)) {
+        return Optional.of(current);
+      }
+
+      Optional<Session> created = this.newSession();
+      created.ifPresent((session) -> {
+        session.claim(this);
+        this.session = session;
+      });
+
+      return created;
+    }
+  }
+
+  private Optional<Session> newSession() {
+    Optional<Session> result = Optional.empty();
+
+    if (this.publicKey == null) {
+      log.error("Public key is empty. Must set a public key to encrypt");
+      return result;
+    }
+
+    Optional<Key> keyOptional = KeyToolFactory.getInstance().aes128key();
+    if (!keyOptional.isPresent()) {
+      return result;
+    }
+
+    try {
+      Cipher cipher = CryptoProviders.cipher(CipherConstants.RsaEcbOaepSha256());
+      cipher.init(Cipher.WRAP_MODE, this.publicKey, OAEP_PARAMETERS);
+      byte[] wrappedKey = cipher.wrap(keyOptional.get());
+      this.wraps.increment();
+
+      result = Optional.of(new Session(wrappedKey, keyOptional.get(), System.nanoTime()));
+    } catch (GeneralSecurityException e) {
+      log.error("Could not wrap session key: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  private static class Session {
+    final byte[] wrappedKey;
+    final Key key;
+    final long created;
+    final AtomicLong uses = new AtomicLong();
+
+    Session(byte[] wrappedKey, Key key, long created) {
+      this.wrappedKey = wrappedKey;
+      this.key = key;
+      this.created = created;
+    }
+
+    // Reserve one message in this session if it is still usable.
+    boolean claim(HybridCryptoTool owner) {
+      if (owner.sessionLifetimeNanos > 0 &&
+        System.nanoTime() - this.created >= owner.sessionLifetimeNanos)
+      {
+        return false;
+      }
+
+      return this.uses.incrementAndGet() <= owner.maxMessagesPerSession;
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.jrfom.crypto;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A block of data encrypted by {@link com.jrfom.crypto.HybridCryptoTool}. In
+ * addition to the IV and AES-GCM encrypted data, including its
+ * authentication tag, it holds the RSA wrapped AES session key that the data
+ * was encrypted with. The wrapped key is authenticated along with the data.
+ * Messages encrypted within the same session carry identical wrapped
+ * keys.
+ *
+ * @since 0.4.0
+ */
+@JsonPropertyOrder({"key", "iv", "data"})
+public class HybridEncryptedData {
+  private static final Logger log = LoggerFactory.getLogger(HybridEncryptedData.class);
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @JsonProperty("key")
+  private byte[] wrappedKey;
+  @JsonProperty("iv")
+  private byte[] iv;
+  @JsonProperty("data")
+  private byte[] data;
+
+  public HybridEncryptedData() {}
+
+  public HybridEncryptedData(byte[] wrappedKey, byte[] iv, byte[] data) {
+    this.wrappedKey = wrappedKey;
+    this.iv = iv;
+    this.data = data;
+  }
+
+  public HybridEncryptedData(byte[] wrappedKey, EncryptedData encryptedData) {
+    this(wrappedKey, encryptedData.getIv(), encryptedData.getData());
+  }
+
+  /**
+   * Create an instance from the string returned by
+   * {@link com.jrfom.crypto.HybridEncryptedData#toString}.
+   *
+   * @param json The string to process
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped
+   *         {@linkplain com.jrfom.crypto.HybridEncryptedData} instance
+   */
+  public static Optional<HybridEncryptedData> fromJSON(String json) {
+    Optional<HybridEncryptedData> result = Optional.empty();
+
+    try {
+      result = Optional.of(mapper.readValue(json, HybridEncryptedData.class));
+    } catch (IOException e) {
+      log.error("Could not read data: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  public byte[] getWrappedKey() {
+    return this.wrappedKey;
+  }
+
+  public void setWrappedKey(byte[] wrappedKey) {
+    this.wrappedKey = wrappedKey;
+  }
+
+  public byte[] getIv() {
+    return this.iv;
+  }
+
+  public void setIv(byte[] iv) {
+    this.iv = iv;
+  }
+
+  public byte[] getData() {
+    return this.data;
+  }
+
+  public void setData(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * The IV and encrypted data without the wrapped key. The data can only be
+   * decrypted with the wrapped key as GCM additional data.
+   */
+  @JsonIgnore
+  public EncryptedData getEncryptedData() {
+    return new EncryptedData(this.iv, this.data, AlgorithmId.AES_GCM_NOPAD);
+  }
+
+  /**
+   * Serializes the instance to JSON with the fields "key", "iv", and "data".
+   *
+   * @return A JSON string on successful serialization, otherwise "not
+   *         serialized".
+   */
+  @Override
+  @JsonIgnore
+  public String toString() {
+    String result = "not serialized";
+
+    try {
+      result = mapper.writeValueAsString(this);
+    } catch (JsonProcessingException e) {
+      log.error("Could not generate JSON string: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+}
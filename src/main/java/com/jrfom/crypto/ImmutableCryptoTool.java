@@ -0,0 +1,425 @@
+package com.jrfom.crypto;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>An immutable {@link com.jrfom.crypto.CryptoTool} for any symmetric
+ * {@link javax.crypto.Cipher} transformation. Instances are created with an
+ * {@link ImmutableCryptoTool.Builder}, which validates the algorithm, mode,
+ * padding, and key once by initializing a cipher. A bad configuration is
+ * reported by {@link ImmutableCryptoTool.Builder#build} instead of by the
+ * first encryption.</p>
+ *
+ * <p>The transformation string, the security provider, and the way the
+ * IV is turned into cipher parameters are resolved when the tool is built.
+ * Each thread reuses its own {@link javax.crypto.Cipher}, so a single
+ * instance can be shared by any number of threads without locking.</p>
+ *
+ * <pre>{@code
+ * CryptoTool tool = ImmutableCryptoTool.builder()
+ *   .algorithm(CipherConstants.ALGO_AES)
+ *   .mode(CipherConstants.MODE_CBC)
+ *   .padding(CipherConstants.PAD_PKCS5)
+ *   .key(key)
+ *   .build();
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public final class ImmutableCryptoTool implements CryptoTool {
+  private static final Logger log = LoggerFactory.getLogger(ImmutableCryptoTool.class);
+
+  public static final int GCM_TAG_BITS = 128;
+
+  private final String algorithm;
+  private final String transformation;
+  private final AlgorithmId algorithmId;
+  private final Key key;
+  private final int ivSize;
+  private final Provider provider;
+  private final Function<byte[], AlgorithmParameterSpec> parameters;
+  private final SecureRandom random;
+  private final ThreadLocal<Cipher> ciphers;
+
+  private ImmutableCryptoTool(Builder builder, Provider provider, int ivSize,
+                              Function<byte[], AlgorithmParameterSpec> parameters)
+  {
+    this.algorithm = builder.algorithm;
+    this.transformation = builder.transformation();
+    this.algorithmId = AlgorithmId.fromTransformation(this.transformation).orElse(null);
+    this.key = builder.key;
+    this.ivSize = ivSize;
+    this.provider = provider;
+    this.parameters = parameters;
+    this.random = (builder.random == null) ? new SecureRandom() : builder.random;
+    this.ciphers = ThreadLocal.withInitial(this::newCipher);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedData data) {
+    Optional<byte[]> result = Optional.empty();
+    Optional<Cipher> cipherOptional = this.getCipher(Cipher.DECRYPT_MODE, data.getIv());
+
+    if (cipherOptional.isPresent()) {
+      try {
+        result = Optional.of(cipherOptional.get().doFinal(data.getData()));
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Decrypt the data described by a {@link com.jrfom.crypto.EncryptedDataView}
+   * without copying the encrypted bytes out of the view's backing buffer.
+   *
+   * @param view A view of data that has been encrypted using the tool's
+   *             transformation
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped byte array of the decrypted data.
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedDataView view) {
+    Optional<byte[]> result = Optional.empty();
+    Optional<Cipher> cipherOptional = this.getCipher(Cipher.DECRYPT_MODE, view.getIv());
+
+    if (cipherOptional.isPresent()) {
+      try {
+        Cipher cipher = cipherOptional.get();
+        ByteBuffer buffer = view.getBuffer();
+        byte[] decryptedBytes;
+
+        if (buffer.hasArray()) {
+          decryptedBytes = cipher.doFinal(
+            buffer.array(),
+            buffer.arrayOffset() + view.getDataOffset(),
+            view.getDataLength()
+          );
+        } else {
+          byte[] output = new byte[cipher.getOutputSize(view.getDataLength())];
+          int length = cipher.doFinal(view.dataBuffer(), ByteBuffer.wrap(output));
+          decryptedBytes = (length == output.length) ?
+            output : Arrays.copyOf(output, length);
+        }
+
+        result = Optional.of(decryptedBytes);
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (ShortBufferException e) {
+        log.error("Output buffer is too small: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data) {
+    byte[] iv = new byte[this.ivSize];
+    if (this.ivSize > 0) {
+      this.random.nextBytes(iv);
+    }
+
+    return this.encrypt(data, iv, iv);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+    if (iv == null) {
+      return this.encrypt(data);
+    }
+
+    if (iv.length != this.ivSize) {
+      log.error("IV must be `{}` bytes, got `{}`", this.ivSize, iv.length);
+      return Optional.empty();
+    }
+
+    return this.encrypt(data, iv, iv.clone());
+  }
+
+  public String getAlgorithm() {
+    return this.algorithm;
+  }
+
+  /**
+   * The complete transformation, e.g. "AES/CBC/PKCS5Padding".
+   */
+  public String getTransformation() {
+    return this.transformation;
+  }
+
+  /**
+   * The number of IV bytes used by the transformation. Zero for modes that
+   * do not use an IV, such as ECB.
+   */
+  public int getIvSize() {
+    return this.ivSize;
+  }
+
+  /**
+   * The provider that supplies this tool's ciphers.
+   */
+  public Provider getProvider() {
+    return this.provider;
+  }
+
+  private Optional<EncryptedData> encrypt(byte[] data, byte[] iv, byte[] ownedIv) {
+    Optional<EncryptedData> result = Optional.empty();
+    Optional<Cipher> cipherOptional = this.getCipher(Cipher.ENCRYPT_MODE, iv);
+
+    if (cipherOptional.isPresent()) {
+      try {
+        byte[] encryptedBytes = cipherOptional.get().doFinal(data);
+        result = Optional.of(new EncryptedData(ownedIv, encryptedBytes, this.algorithmId));
+      } catch (IllegalBlockSizeException e) {
+        log.error("Bad encryption block size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      } catch (BadPaddingException e) {
+        log.error("Bad encryption padding size: `{}`", e.getMessage());
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  private Optional<Cipher> getCipher(int mode, byte[] iv) {
+    Optional<Cipher> result = Optional.empty();
+
+    if (iv == null && this.ivSize > 0) {
+      log.error("IV is empty. `{}` requires an IV", this.transformation);
+      return result;
+    }
+
+    try {
+      Cipher cipher = this.ciphers.get();
+      AlgorithmParameterSpec spec = this.parameters.apply(iv);
+
+      if (spec == null) {
+        cipher.init(mode, this.key);
+      } else {
+        cipher.init(mode, this.key, spec);
+      }
+
+      result = Optional.of(cipher);
+    } catch (GeneralSecurityException e) {
+      log.error("Could not initialize cipher: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } catch (IllegalArgumentException e) {
+      log.error("Algorithm parameters invalid: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  private Cipher newCipher() {
+    try {
+      return Cipher.getInstance(this.transformation, this.provider);
+    } catch (GeneralSecurityException e) {
+      // The transformation was created with this provider when the tool was
+      // built, so this cannot happen unless the provider is deregistered.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * <p>Collects the configuration of an {@link ImmutableCryptoTool}. The
+   * algorithm and key are required. The mode defaults to
+   * {@link com.jrfom.crypto.CipherConstants#MODE_CBC} and the padding to
+   * {@link com.jrfom.crypto.CipherConstants#PAD_PKCS5}. When no provider is
+   * given, the one pinned in {@link com.jrfom.crypto.CryptoProviders} is used,
+   * falling back to the first installed provider that supports the
+   * transformation.</p>
+   *
+   * <p>Builders are not thread safe, but may be reused to build several
+   * tools.</p>
+   */
+  public static final class Builder {
+    private String algorithm;
+    private String mode = CipherConstants.MODE_CBC;
+    private String padding = CipherConstants.PAD_PKCS5;
+    private Key key;
+    private Integer ivSize;
+    private Provider provider;
+    private SecureRandom random;
+
+    private Builder() {}
+
+    public Builder algorithm(String algorithm) {
+      this.algorithm = algorithm;
+      return this;
+    }
+
+    public Builder mode(String mode) {
+      this.mode = mode;
+      return this;
+    }
+
+    public Builder padding(String padding) {
+      this.padding = padding;
+      return this;
+    }
+
+    public Builder key(Key key) {
+      this.key = key;
+      return this;
+    }
+
+    /**
+     * Override the IV size. By default it is the cipher's block size, or
+     * 12 bytes for GCM, or zero for ECB.
+     */
+    public Builder ivSize(int ivSize) {
+      this.ivSize = ivSize;
+      return this;
+    }
+
+    public Builder provider(Provider provider) {
+      this.provider = provider;
+      return this;
+    }
+
+    /**
+     * The source of generated IVs. A new {@link java.security.SecureRandom}
+     * is used by default.
+     */
+    public Builder secureRandom(SecureRandom random) {
+      this.random = random;
+      return this;
+    }
+
+    /**
+     * Validate the configuration and create the tool.
+     *
+     * @throws IllegalStateException If a required value is missing, the
+     *                               transformation is not available, or
+     *                               the key cannot be used with it
+     */
+    public ImmutableCryptoTool build() {
+      if (this.algorithm == null || this.mode == null || this.padding == null) {
+        throw new IllegalStateException("Algorithm, mode, and padding must be set");
+      }
+
+      if (this.key == null) {
+        throw new IllegalStateException("Key must be set");
+      }
+
+      if (!this.algorithm.equalsIgnoreCase(this.key.getAlgorithm())) {
+        throw new IllegalStateException(String.format(
+          "Key algorithm `%s` does not match `%s`",
+          this.key.getAlgorithm(),
+          this.algorithm
+        ));
+      }
+
+      String transformation = this.transformation();
+      Cipher cipher;
+
+      try {
+        cipher = (this.provider == null) ?
+          CryptoProviders.cipher(transformation) :
+          Cipher.getInstance(transformation, this.provider);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(
+          String.format("Transformation `%s` is not available", transformation),
+          e
+        );
+      }
+
+      int ivSize = (this.ivSize != null) ? this.ivSize : this.defaultIvSize(cipher);
+      if (ivSize < 0) {
+        throw new IllegalStateException("IV size must not be negative");
+      }
+
+      Function<byte[], AlgorithmParameterSpec> parameters = this.parameters(ivSize);
+
+      // Initializing once proves the key and IV size suit the transformation.
+      try {
+        AlgorithmParameterSpec spec = parameters.apply(new byte[ivSize]);
+        if (spec == null) {
+          cipher.init(Cipher.ENCRYPT_MODE, this.key);
+        } else {
+          cipher.init(Cipher.ENCRYPT_MODE, this.key, spec);
+        }
+      } catch (GeneralSecurityException | IllegalArgumentException e) {
+        throw new IllegalStateException(
+          String.format("Key or IV size is not valid for `%s`", transformation),
+          e
+        );
+      }
+
+      return new ImmutableCryptoTool(this, cipher.getProvider(), ivSize, parameters);
+    }
+
+    private String transformation() {
+      return String.format("%s/%s/%s", this.algorithm, this.mode, this.padding);
+    }
+
+    private int defaultIvSize(Cipher cipher) {
+      if (CipherConstants.MODE_ECB.equalsIgnoreCase(this.mode)) {
+        return 0;
+      }
+
+      if (CipherConstants.MODE_GCM.equalsIgnoreCase(this.mode)) {
+        return 12;
+      }
+
+      return cipher.getBlockSize();
+    }
+
+    private Function<byte[], AlgorithmParameterSpec> parameters(int ivSize) {
+      if (ivSize == 0) {
+        return (iv) -> null;
+      }
+
+      if (CipherConstants.MODE_GCM.equalsIgnoreCase(this.mode)) {
+        return (iv) -> new GCMParameterSpec(GCM_TAG_BITS, iv);
+      }
+
+      return IvParameterSpec::new;
+    }
+  }
+}
@@ -7,6 +7,8 @@ import java.util.Optional;
 
 import javax.crypto.KeyGenerator;
 
+import com.jrfom.crypto.jfr.CryptoEvents;
+import com.jrfom.crypto.jfr.CryptoTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -128,17 +130,24 @@ public class KeyTool {
    */
   public Optional<Key> keyForAlgorithmAtBits(String algorithm, Integer bits) {
     Optional<Key> result = Optional.empty();
+    CryptoTrace trace = CryptoEvents.keyGeneration(algorithm);
 
     try {
       KeyGenerator generator = KeyGenerator.getInstance(algorithm);
       generator.init(bits, this.random);
+      trace.phase(CryptoTrace.Phase.SETUP);
+
+      // Symmetric key generation is drawing random bytes, which is also
+      // where a fresh SecureRandom is seeded.
       Key key = generator.generateKey();
+      trace.phase(CryptoTrace.Phase.RANDOM);
       result = Optional.of(key);
     } catch (NoSuchAlgorithmException e) {
       log.error("Could not find algorithm: `{}`", algorithm);
       log.debug(e.toString());
     }
 
+    trace.end(bits, result.isPresent());
     return result;
   }
 }
\ No newline at end of file
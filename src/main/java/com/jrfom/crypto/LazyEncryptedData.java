@@ -0,0 +1,150 @@
+package com.jrfom.crypto;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * <p>Holds an {@link com.jrfom.crypto.EncryptedData} and the
+ * {@link com.jrfom.crypto.CryptoTool} that can decrypt it, and decrypts it
+ * only when the plaintext is first requested. Objects with many encrypted
+ * fields pay no cipher cost for fields that are never read.</p>
+ *
+ * <p>Decryption happens at most once per retained plaintext, even when many
+ * threads call {@link LazyEncryptedData#get} concurrently; a failed
+ * decryption is remembered and not retried. The plaintext is normally kept
+ * until {@link LazyEncryptedData#clear} is called. When the holder is
+ * created with {@code soft} set, the plaintext is held through a
+ * {@link java.lang.ref.SoftReference} so the garbage collector may reclaim
+ * it under memory pressure; it is then decrypted again on the next
+ * access.</p>
+ *
+ * <p>Callers always receive their own copy of the plaintext. Reads of an
+ * already decrypted value take no lock; a copy that overlapped a
+ * {@link LazyEncryptedData#clear} is detected and retried, so a copy is
+ * never partially zeroed. The holder serializes to JSON as the wrapped
+ * {@link com.jrfom.crypto.EncryptedData}. Instances are thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class LazyEncryptedData {
+  private final EncryptedData encryptedData;
+  private final CryptoTool tool;
+  private final boolean soft;
+
+  // Either an Optional<byte[]> or a SoftReference<Optional<byte[]>>. An
+  // empty Optional records a failed decryption.
+  private volatile Object value;
+
+  // Decryption and clearing hold the write lock; reads of a held value are
+  // optimistic and only validated against it.
+  private final StampedLock lock = new StampedLock();
+
+  /**
+   * Create a holder that keeps the plaintext once it has been decrypted.
+   *
+   * @param encryptedData The data to decrypt on first access
+   * @param tool The tool that can decrypt {@code encryptedData}
+   */
+  public LazyEncryptedData(EncryptedData encryptedData, CryptoTool tool) {
+    this(encryptedData, tool, false);
+  }
+
+  /**
+   * @param encryptedData The data to decrypt on first access
+   * @param tool The tool that can decrypt {@code encryptedData}
+   * @param soft Whether the plaintext may be reclaimed under memory pressure
+   */
+  public LazyEncryptedData(EncryptedData encryptedData, CryptoTool tool, boolean soft) {
+    this.encryptedData = encryptedData;
+    this.tool = tool;
+    this.soft = soft;
+  }
+
+  /**
+   * Get the plaintext, decrypting it if this is the first access.
+   *
+   * @return An empty {@link java.util.Optional} if the data could not be
+   *         decrypted. Otherwise an Optional wrapped copy of the plaintext.
+   */
+  public Optional<byte[]> get() {
+    long stamp = this.lock.tryOptimisticRead();
+    Optional<byte[]> result = this.cached();
+
+    if (result != null) {
+      Optional<byte[]> copy = result.map(byte[]::clone);
+
+      // A failed validation means clear() may have zeroed the plaintext part
+      // way through the copy, so it is discarded.
+      if (this.lock.validate(stamp)) {
+        return copy;
+      }
+    }
+
+    stamp = this.lock.writeLock();
+    try {
+      result = this.cached();
+
+      if (result == null) {
+        result = this.tool.decrypt(this.encryptedData);
+        this.value = this.soft ? new SoftReference<>(result) : result;
+      }
+
+      return result.map(byte[]::clone);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Whether the plaintext, or a decryption failure, is currently held.
+   */
+  public boolean isDecrypted() {
+    return this.cached() != null;
+  }
+
+  /**
+   * Zero and drop the held plaintext. The next call to
+   * {@link LazyEncryptedData#get} decrypts again.
+   */
+  public void clear() {
+    long stamp = this.lock.writeLock();
+    try {
+      Optional<byte[]> current = this.cached();
+      this.value = null;
+
+      if (current != null) {
+        current.ifPresent((plainText) -> Arrays.fill(plainText, (byte) 0));
+      }
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @JsonValue
+  public EncryptedData getEncryptedData() {
+    return this.encryptedData;
+  }
+
+  public CryptoTool getTool() {
+    return this.tool;
+  }
+
+  public boolean isSoft() {
+    return this.soft;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Optional<byte[]> cached() {
+    Object current = this.value;
+
+    if (current instanceof SoftReference) {
+      return ((SoftReference<Optional<byte[]>>) current).get();
+    }
+
+    return (Optional<byte[]>) current;
+  }
+}
@@ -0,0 +1,418 @@
+package com.jrfom.crypto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import javax.crypto.Mac;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Computes a Merkle tree of {@link javax.crypto.Mac} hashes over fixed
+ * size chunks of a file or byte array. Chunk hashes are computed in
+ * parallel, so hashing a large file scales with the number of cores, and
+ * any single chunk can later be verified against the root with a short
+ * {@link MerkleHMAC.Proof} without reading the rest of the data.</p>
+ *
+ * <p>The tree is built as follows:</p>
+ *
+ * <ul>
+ *   <li>leaf {@code i} = HMAC(0x00 || i as 8 big endian bytes || chunk
+ *   {@code i})</li>
+ *   <li>parent = HMAC(0x01 || left || right)</li>
+ *   <li>a node without a sibling is promoted to the next level unchanged</li>
+ * </ul>
+ *
+ * <p>The prefixes keep leaf and internal hashes distinct, and the index
+ * binds every chunk to its position. Empty input has a single, empty
+ * chunk. The root differs from the result of
+ * {@link com.jrfom.crypto.HMAC#forDataWithKeyAndAlgorithm}.</p>
+ *
+ * <p>Instances are thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class MerkleHMAC {
+  private static final Logger log = LoggerFactory.getLogger(MerkleHMAC.class);
+
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  private static final byte LEAF = 0x00;
+  private static final byte NODE = 0x01;
+
+  private final Key key;
+  private final String algorithm;
+  private final int chunkSize;
+  private final ThreadLocal<Mac> macs;
+
+  /**
+   * Create an instance that uses {@link com.jrfom.crypto.HMAC#ALGO_SHA256}
+   * and the {@link #DEFAULT_CHUNK_SIZE}.
+   *
+   * @param key A valid {@link javax.crypto.spec.SecretKeySpec} instance
+   */
+  public MerkleHMAC(Key key) {
+    this(key, HMAC.ALGO_SHA256, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param key A valid {@link javax.crypto.spec.SecretKeySpec} instance
+   * @param algorithm The HMAC algorithm, e.g. {@link com.jrfom.crypto.HMAC#ALGO_SHA256}
+   * @param chunkSize The number of bytes hashed by each leaf
+   * @throws IllegalArgumentException If the algorithm is not available, the
+   *                                  key cannot be used with it, or the
+   *                                  chunk size is not positive
+   */
+  public MerkleHMAC(Key key, String algorithm, int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+
+    this.key = key;
+    this.algorithm = algorithm;
+    this.chunkSize = chunkSize;
+
+    // Fail now rather than on a worker thread.
+    this.newMac();
+    this.macs = ThreadLocal.withInitial(this::newMac);
+  }
+
+  /**
+   * Build the tree for a byte array.
+   *
+   * @param data The data to hash
+   * @return The tree. Computing it cannot fail once the instance exists.
+   */
+  public Tree tree(byte[] data) {
+    int count = this.chunkCount(data.length);
+
+    byte[][] leaves = new byte[count][];
+    IntStream.range(0, count).parallel().forEach((i) -> {
+      int offset = i * this.chunkSize;
+      int length = Math.min(this.chunkSize, data.length - offset);
+      leaves[i] = this.leaf(i, ByteBuffer.wrap(data, offset, Math.max(0, length)));
+    });
+
+    return this.build(leaves, data.length);
+  }
+
+  /**
+   * Build the tree for a file. Chunks are read and hashed in parallel.
+   *
+   * @param path The file to hash
+   * @return An empty {@link java.util.Optional} if the file could not be
+   *         read. Otherwise an Optional wrapped {@link MerkleHMAC.Tree}.
+   */
+  public Optional<Tree> tree(Path path) {
+    Optional<Tree> result = Optional.empty();
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      int count = this.chunkCount(size);
+
+      byte[][] leaves = new byte[count][];
+      IntStream.range(0, count).parallel().forEach((i) -> {
+        leaves[i] = this.leaf(i, this.readChunk(channel, i, size));
+      });
+
+      result = Optional.of(this.build(leaves, size));
+    } catch (IOException e) {
+      log.error("Could not read file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } catch (UncheckedIOException e) {
+      log.error("Could not read file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Verify one chunk against a trusted root.
+   *
+   * @param chunk The chunk's bytes
+   * @param proof The proof for the chunk, from {@link MerkleHMAC.Tree#proof}
+   * @param root The trusted root, from {@link MerkleHMAC.Tree#getRoot}
+   * @return Whether the chunk is unmodified and at the proof's index
+   */
+  public boolean verifyChunk(byte[] chunk, Proof proof, byte[] root) {
+    if (chunk.length > this.chunkSize || proof.index < 0 || proof.index >= proof.chunkCount) {
+      return false;
+    }
+
+    byte[] hash = this.leaf(proof.index, ByteBuffer.wrap(chunk));
+    int index = proof.index;
+    int levelSize = proof.chunkCount;
+    int sibling = 0;
+
+    while (levelSize > 1) {
+      boolean isRight = (index & 1) == 1;
+
+      if (isRight || index + 1 < levelSize) {
+        if (sibling >= proof.siblings.size()) {
+          return false;
+        }
+
+        byte[] other = proof.siblings.get(sibling);
+        sibling += 1;
+        hash = isRight ? this.node(other, hash) : this.node(hash, other);
+      }
+
+      index >>= 1;
+      levelSize = (levelSize + 1) >> 1;
+    }
+
+    return sibling == proof.siblings.size() && MessageDigest.isEqual(hash, root);
+  }
+
+  /**
+   * Read chunk {@code proof.getIndex()} from a file and verify it against a
+   * trusted root. Only that chunk is read.
+   *
+   * @return Whether the chunk is unmodified. False if it could not be read.
+   */
+  public boolean verifyChunk(Path path, Proof proof, byte[] root) {
+    boolean result = false;
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer chunk = this.readChunk(channel, proof.index, channel.size());
+      byte[] bytes = new byte[chunk.remaining()];
+      chunk.get(bytes);
+
+      result = this.verifyChunk(bytes, proof, root);
+    } catch (IOException e) {
+      log.error("Could not read file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } catch (UncheckedIOException e) {
+      log.error("Could not read file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  public String getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public int getChunkSize() {
+    return this.chunkSize;
+  }
+
+  private int chunkCount(long size) {
+    long count = Math.max(1, (size + this.chunkSize - 1) / this.chunkSize);
+
+    if (count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Input has too many chunks; use a larger chunk size");
+    }
+
+    return (int) count;
+  }
+
+  private Tree build(byte[][] leaves, long size) {
+    List<byte[][]> levels = new ArrayList<>();
+    levels.add(leaves);
+
+    byte[][] level = leaves;
+    while (level.length > 1) {
+      byte[][] current = level;
+      byte[][] parents = new byte[(current.length + 1) / 2][];
+
+      IntStream.range(0, parents.length).parallel().forEach((i) -> {
+        int left = i * 2;
+        parents[i] = (left + 1 < current.length) ?
+          this.node(current[left], current[left + 1]) :
+          current[left];
+      });
+
+      levels.add(parents);
+      level = parents;
+    }
+
+    return new Tree(levels, this.chunkSize, size);
+  }
+
+  private byte[] leaf(int index, ByteBuffer chunk) {
+    Mac mac = this.macs.get();
+    mac.update(LEAF);
+    mac.update(ByteBuffer.allocate(8).putLong(0, index).array());
+    mac.update(chunk);
+    return mac.doFinal();
+  }
+
+  private byte[] node(byte[] left, byte[] right) {
+    Mac mac = this.macs.get();
+    mac.update(NODE);
+    mac.update(left);
+    mac.update(right);
+    return mac.doFinal();
+  }
+
+  private ByteBuffer readChunk(FileChannel channel, int index, long size) {
+    long position = (long) index * this.chunkSize;
+    int length = (int) Math.max(0, Math.min(this.chunkSize, size - position));
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+
+    try {
+      // Positional reads do not move the channel's position, so workers can
+      // share the channel.
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of file at chunk " + index);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    buffer.flip();
+    return buffer;
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = CryptoProviders.mac(this.algorithm);
+      mac.init(this.key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException(
+        String.format("Could not create `%s` Mac: %s", this.algorithm, e.getMessage()),
+        e
+      );
+    }
+  }
+
+  /**
+   * The hashes of every level of a Merkle tree, from the leaves to the root.
+   */
+  public static class Tree {
+    private final List<byte[][]> levels;
+    private final int chunkSize;
+    private final long size;
+
+    Tree(List<byte[][]> levels, int chunkSize, long size) {
+      this.levels = levels;
+      this.chunkSize = chunkSize;
+      this.size = size;
+    }
+
+    public byte[] getRoot() {
+      return this.levels.get(this.levels.size() - 1)[0].clone();
+    }
+
+    /**
+     * The root as a {@link java.util.Base64} encoded string, matching the
+     * format returned by {@link com.jrfom.crypto.HMAC}.
+     */
+    public String getRootBase64() {
+      return Base64.getEncoder().encodeToString(this.levels.get(this.levels.size() - 1)[0]);
+    }
+
+    public byte[] getLeaf(int index) {
+      return this.levels.get(0)[index].clone();
+    }
+
+    public int getChunkCount() {
+      return this.levels.get(0).length;
+    }
+
+    public int getChunkSize() {
+      return this.chunkSize;
+    }
+
+    /**
+     * The number of bytes hashed.
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Get the sibling hashes needed to verify chunk {@code index} against the
+     * root.
+     *
+     * @throws IndexOutOfBoundsException If there is no such chunk
+     */
+    public Proof proof(int index) {
+      if (index < 0 || index >= this.getChunkCount()) {
+        throw new IndexOutOfBoundsException("No chunk " + index);
+      }
+
+      List<byte[]> siblings = new ArrayList<>();
+      int position = index;
+
+      for (int level = 0; level < this.levels.size() - 1; level += 1) {
+        byte[][] hashes = this.levels.get(level);
+        int sibling = position ^ 1;
+
+        if (sibling < hashes.length) {
+          siblings.add(hashes[sibling].clone());
+        }
+
+        position >>= 1;
+      }
+
+      return new Proof(index, this.getChunkCount(), siblings);
+    }
+  }
+
+  /**
+   * The sibling hashes on the path from one chunk's leaf to the root.
+   */
+  public static class Proof {
+    private final int index;
+    private final int chunkCount;
+    private final List<byte[]> siblings;
+
+    public Proof(int index, int chunkCount, List<byte[]> siblings) {
+      this.index = index;
+      this.chunkCount = chunkCount;
+      this.siblings = Collections.unmodifiableList(new ArrayList<>(siblings));
+    }
+
+    public int getIndex() {
+      return this.index;
+    }
+
+    public int getChunkCount() {
+      return this.chunkCount;
+    }
+
+    /**
+     * The sibling hashes, from the leaf level upward. Levels where the node
+     * was promoted without a sibling have no entry.
+     */
+    public List<byte[]> getSiblings() {
+      return this.siblings;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder()
+        .append("Proof{index=").append(this.index)
+        .append(", chunkCount=").append(this.chunkCount)
+        .append(", siblings=[");
+
+      for (int i = 0; i < this.siblings.size(); i += 1) {
+        builder.append((i == 0) ? "" : ", ")
+          .append(Base64.getEncoder().encodeToString(this.siblings.get(i)));
+      }
+
+      return builder.append("]}").toString();
+    }
+  }
+}
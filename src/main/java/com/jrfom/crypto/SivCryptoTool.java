@@ -0,0 +1,284 @@
+package com.jrfom.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>An implementation of {@link com.jrfom.crypto.CryptoTool} that performs
+ * deterministic, authenticated encryption using AES-SIV as described in
+ * <a href="https://tools.ietf.org/html/rfc5297">RFC 5297</a>. It is built
+ * from the standard "AES/CBC/NoPadding" (for CMAC) and "AES/CTR/NoPadding"
+ * ciphers.</p>
+ *
+ * <p>Equal plaintexts (and associated data) under the same key always
+ * produce equal {@link com.jrfom.crypto.EncryptedData}, so encrypted values
+ * can be stored in equality indexes and looked up without decrypting. The
+ * trade-off is that an observer can tell when two ciphertexts hold the same
+ * plaintext. The synthetic IV doubles as an authentication tag; tampered
+ * data fails to decrypt.</p>
+ *
+ * <p>See {@link com.jrfom.crypto.CipherConstants#AesSiv()}.</p>
+ *
+ * @since 0.4.0
+ */
+public class SivCryptoTool implements CryptoTool {
+  private static final Logger log = LoggerFactory.getLogger(SivCryptoTool.class);
+
+  private static final int BLOCK_SIZE = 16;
+  private static final int MAX_COMPONENTS = 126;
+  private static final int CHUNK_SIZE = 4096;
+
+  private final Key macKey;
+  private final Key ctrKey;
+
+  /**
+   * Create an instance using the specified key.
+   *
+   * @param key A 256, 384 or 512-bit AES key. The first half is used for
+   *            S2V (CMAC) and the second half for CTR encryption.
+   * @throws IllegalArgumentException If the key is not of a supported size
+   */
+  public SivCryptoTool(Key key) {
+    byte[] encoded = key.getEncoded();
+
+    if (encoded == null || (encoded.length != 32 && encoded.length != 48 && encoded.length != 64)) {
+      throw new IllegalArgumentException("AES-SIV requires a 256, 384 or 512-bit key");
+    }
+
+    int half = encoded.length / 2;
+    this.macKey = new SecretKeySpec(encoded, 0, half, CipherConstants.ALGO_AES);
+    this.ctrKey = new SecretKeySpec(encoded, half, half, CipherConstants.ALGO_AES);
+    Arrays.fill(encoded, (byte) 0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<byte[]> decrypt(EncryptedData data) {
+    return this.decryptWithAssociatedData(data);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data) {
+    return this.encryptWithAssociatedData(data);
+  }
+
+  /**
+   * Not supported. AES-SIV derives the IV from the data; use
+   * {@link SivCryptoTool#encryptWithAssociatedData} to bind a nonce or other
+   * context to the ciphertext.
+   *
+   * @return An empty {@link java.util.Optional}
+   */
+  @Override
+  public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+    log.error("AES-SIV computes its own IV; a supplied IV cannot be used");
+    return Optional.empty();
+  }
+
+  /**
+   * Encrypt {@code data}, authenticating (but not encrypting) each of the
+   * {@code associatedData} components. The same components must be supplied,
+   * in the same order, to decrypt.
+   *
+   * @param data The data to be encrypted
+   * @param associatedData Up to 126 components, e.g. a table and column name
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped {@link com.jrfom.crypto.EncryptedData}
+   *         whose IV is the synthetic IV.
+   */
+  public Optional<EncryptedData> encryptWithAssociatedData(byte[] data, byte[]... associatedData) {
+    Optional<EncryptedData> result = Optional.empty();
+
+    if (associatedData.length > MAX_COMPONENTS) {
+      log.error("Too many associated data components: `{}`", associatedData.length);
+      return result;
+    }
+
+    try {
+      byte[] iv = this.s2v(associatedData, data);
+      byte[] encryptedBytes = this.ctr(iv, data);
+      result = Optional.of(new EncryptedData(iv, encryptedBytes, AlgorithmId.AES_SIV));
+    } catch (GeneralSecurityException e) {
+      log.error("Could not encrypt data: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Decrypt and authenticate data produced by
+   * {@link SivCryptoTool#encryptWithAssociatedData}.
+   *
+   * @param data The encrypted data
+   * @param associatedData The components given when encrypting
+   * @return An empty {@link java.util.Optional} if there was an error or the
+   *         data failed authentication. Otherwise an Optional wrapped byte
+   *         array of the decrypted data.
+   */
+  public Optional<byte[]> decryptWithAssociatedData(EncryptedData data, byte[]... associatedData) {
+    Optional<byte[]> result = Optional.empty();
+
+    if (data.getIv() == null || data.getIv().length != BLOCK_SIZE) {
+      log.error("AES-SIV requires a 16 byte synthetic IV");
+      return result;
+    }
+
+    if (associatedData.length > MAX_COMPONENTS) {
+      log.error("Too many associated data components: `{}`", associatedData.length);
+      return result;
+    }
+
+    try {
+      byte[] decryptedBytes = this.ctr(data.getIv(), data.getData());
+      byte[] expected = this.s2v(associatedData, decryptedBytes);
+
+      if (MessageDigest.isEqual(expected, data.getIv())) {
+        result = Optional.of(decryptedBytes);
+      } else {
+        Arrays.fill(decryptedBytes, (byte) 0);
+        log.error("Encrypted data failed authentication");
+      }
+    } catch (GeneralSecurityException e) {
+      log.error("Could not decrypt data: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * The S2V construction from RFC 5297, section 2.4.
+   */
+  private byte[] s2v(byte[][] associatedData, byte[] plainText) throws GeneralSecurityException {
+    Cipher cipher = CryptoProviders.cipher(CipherConstants.AesCbcNoPad());
+    IvParameterSpec zeroIv = new IvParameterSpec(new byte[BLOCK_SIZE]);
+
+    // CMAC subkeys, RFC 4493 section 2.3.
+    cipher.init(Cipher.ENCRYPT_MODE, this.macKey, zeroIv);
+    byte[] k1 = dbl(cipher.doFinal(new byte[BLOCK_SIZE]));
+    byte[] k2 = dbl(k1);
+
+    byte[] d = this.cmac(cipher, zeroIv, k1, k2, new byte[BLOCK_SIZE]);
+    for (byte[] component : associatedData) {
+      xor(dbl(d), this.cmac(cipher, zeroIv, k1, k2, component), d);
+    }
+
+    if (plainText.length >= BLOCK_SIZE) {
+      // T = Sn xorend D. Only the blocks touched by the xor are copied.
+      int prefixLength = ((plainText.length - BLOCK_SIZE) / BLOCK_SIZE) * BLOCK_SIZE;
+      byte[] rest = Arrays.copyOfRange(plainText, prefixLength, plainText.length);
+      int tail = rest.length - BLOCK_SIZE;
+      for (int i = 0; i < BLOCK_SIZE; i += 1) {
+        rest[tail + i] ^= d[i];
+      }
+
+      return this.cmac(cipher, zeroIv, k1, k2, plainText, prefixLength, rest);
+    }
+
+    byte[] t = pad(plainText, plainText.length);
+    xor(dbl(d), t, t);
+    return this.cmac(cipher, zeroIv, k1, k2, t);
+  }
+
+  private byte[] cmac(Cipher cipher, IvParameterSpec zeroIv, byte[] k1, byte[] k2,
+                      byte[] message)
+    throws GeneralSecurityException
+  {
+    int prefixLength = (message.length == 0) ?
+      0 : ((message.length - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+    byte[] rest = Arrays.copyOfRange(message, prefixLength, message.length);
+
+    return this.cmac(cipher, zeroIv, k1, k2, message, prefixLength, rest);
+  }
+
+  /**
+   * CMAC (RFC 4493) of the first {@code prefixLength} bytes of
+   * {@code prefix}, a whole number of blocks, followed by {@code rest}. The
+   * prefix is run through CBC in chunks so large messages do not need a full
+   * size output buffer.
+   */
+  private byte[] cmac(Cipher cipher, IvParameterSpec zeroIv, byte[] k1, byte[] k2,
+                      byte[] prefix, int prefixLength, byte[] rest)
+    throws GeneralSecurityException
+  {
+    cipher.init(Cipher.ENCRYPT_MODE, this.macKey, zeroIv);
+
+    byte[] scratch = new byte[Math.min(CHUNK_SIZE, Math.max(2 * BLOCK_SIZE, prefixLength))];
+    for (int position = 0; position < prefixLength; position += scratch.length) {
+      int length = Math.min(scratch.length, prefixLength - position);
+      cipher.update(prefix, position, length, scratch, 0);
+    }
+
+    int restPrefix = (rest.length == 0) ? 0 : ((rest.length - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+    if (restPrefix > 0) {
+      cipher.update(rest, 0, restPrefix, scratch, 0);
+    }
+
+    byte[] last;
+    if (rest.length - restPrefix == BLOCK_SIZE) {
+      last = Arrays.copyOfRange(rest, restPrefix, rest.length);
+      xor(last, k1, last);
+    } else {
+      last = pad(Arrays.copyOfRange(rest, restPrefix, rest.length), rest.length - restPrefix);
+      xor(last, k2, last);
+    }
+
+    return cipher.doFinal(last);
+  }
+
+  private byte[] ctr(byte[] iv, byte[] data) throws GeneralSecurityException {
+    byte[] counter = iv.clone();
+    counter[8] &= 0x7F;
+    counter[12] &= 0x7F;
+
+    Cipher cipher = CryptoProviders.cipher(CipherConstants.AesCtrNoPad());
+    cipher.init(Cipher.DECRYPT_MODE, this.ctrKey, new IvParameterSpec(counter));
+    return cipher.doFinal(data);
+  }
+
+  private static byte[] dbl(byte[] block) {
+    byte[] result = new byte[BLOCK_SIZE];
+    int carry = 0;
+
+    for (int i = BLOCK_SIZE - 1; i >= 0; i -= 1) {
+      int value = block[i] & 0xFF;
+      result[i] = (byte) ((value << 1) | carry);
+      carry = value >>> 7;
+    }
+
+    if (carry != 0) {
+      result[BLOCK_SIZE - 1] ^= (byte) 0x87;
+    }
+
+    return result;
+  }
+
+  private static byte[] pad(byte[] source, int length) {
+    byte[] result = new byte[BLOCK_SIZE];
+    System.arraycopy(source, 0, result, 0, length);
+    result[length] = (byte) 0x80;
+    return result;
+  }
+
+  private static void xor(byte[] a, byte[] b, byte[] destination) {
+    for (int i = 0; i < BLOCK_SIZE; i += 1) {
+      destination[i] = (byte) (a[i] ^ b[i]);
+    }
+  }
+}
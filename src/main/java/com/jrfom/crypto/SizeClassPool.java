@@ -0,0 +1,98 @@
+package com.jrfom.crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * The size class bookkeeping shared by {@link com.jrfom.crypto.ByteArrayPool}
+ * and {@link com.jrfom.crypto.DirectBufferPool}: idle items are kept in one
+ * bounded queue per power of two size, from a minimum size up to a maximum.
+ * The queues are array backed, so taking and returning items allocates
+ * nothing.
+ *
+ * @param <T> The pooled item type
+ */
+final class SizeClassPool<T> {
+  private static final int MAXIMUM_CLASS_SIZE = 1 << 30;
+
+  private final int minimumSize;
+  private final int minimumShift;
+  private final int maximumSize;
+  private final boolean retaining;
+  private final List<ArrayBlockingQueue<T>> classes;
+
+  /**
+   * @param minimumSize The smallest size class. It must be a power of two.
+   * @param maximumSize The largest size to retain. It is rounded up to a
+   *                    power of two.
+   * @param retainedPerClass The maximum number of idle items per class.
+   *                         Each class's queue is allocated at this
+   *                         capacity up front. Zero or less retains
+   *                         nothing.
+   */
+  SizeClassPool(int minimumSize, int maximumSize, int retainedPerClass) {
+    this.minimumSize = minimumSize;
+    this.minimumShift = Integer.numberOfTrailingZeros(minimumSize);
+    this.maximumSize = this.classSize(
+      Math.min(Math.max(maximumSize, minimumSize), MAXIMUM_CLASS_SIZE)
+    );
+    this.retaining = retainedPerClass > 0;
+
+    int count = this.classIndex(this.maximumSize) + 1;
+    this.classes = new ArrayList<>(count);
+    for (int i = 0; i < count; i += 1) {
+      this.classes.add(new ArrayBlockingQueue<>(Math.max(1, retainedPerClass)));
+    }
+  }
+
+  int getMaximumSize() {
+    return this.maximumSize;
+  }
+
+  /**
+   * The size of the class that holds requests for {@code size} bytes.
+   */
+  int classSize(int size) {
+    return this.minimumSize << this.classIndex(size);
+  }
+
+  /**
+   * Whether {@code size} is exactly one of the pool's size classes.
+   */
+  boolean isClassSize(int size) {
+    return size >= this.minimumSize &&
+      size <= this.maximumSize &&
+      size == this.classSize(size);
+  }
+
+  /**
+   * Take an idle item from the class for {@code size}, which must not
+   * exceed the maximum size.
+   *
+   * @return The item, or {@code null} if the class is empty
+   */
+  T poll(int size) {
+    return this.classes.get(this.classIndex(size)).poll();
+  }
+
+  /**
+   * Keep {@code item}, whose size must satisfy
+   * {@link SizeClassPool#isClassSize}, unless its class is full.
+   */
+  void offer(T item, int size) {
+    if (!this.retaining) {
+      return;
+    }
+
+    this.classes.get(this.classIndex(size)).offer(item);
+  }
+
+  private int classIndex(int size) {
+    if (size <= this.minimumSize) {
+      return 0;
+    }
+
+    return (32 - Integer.numberOfLeadingZeros(size - 1)) - this.minimumShift;
+  }
+}
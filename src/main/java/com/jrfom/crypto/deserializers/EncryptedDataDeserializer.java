@@ -1,14 +1,13 @@
 package com.jrfom.crypto.deserializers;
 
 import java.io.IOException;
-import java.util.Base64;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.jrfom.crypto.AlgorithmId;
 import com.jrfom.crypto.EncryptedData;
 
 public class EncryptedDataDeserializer extends JsonDeserializer<EncryptedData> {
@@ -16,19 +15,41 @@ public class EncryptedDataDeserializer extends JsonDeserializer<EncryptedData> {
   public EncryptedData deserialize(JsonParser jp, DeserializationContext ctxt)
     throws IOException, JsonProcessingException
   {
+    // Read the fields straight off the token stream rather than building a
+    // tree, and let the parser decode the Base64 values in place.
     EncryptedData result = new EncryptedData();
-    Base64.Decoder decoder = Base64.getDecoder();
-    ObjectCodec codec = jp.getCodec();
-    JsonNode node = codec.readTree(jp);
+    JsonToken token = jp.getCurrentToken();
 
-    result.setIv(
-      decoder.decode(node.get("iv").asText())
-    );
+    if (token == JsonToken.START_OBJECT) {
+      token = jp.nextToken();
+    }
 
-    result.setData(
-      decoder.decode(node.get("data").asText())
-    );
+    for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+      String name = jp.getCurrentName();
+      jp.nextToken();
+
+      if ("iv".equals(name)) {
+        result.setIv(jp.getBinaryValue());
+      } else if ("data".equals(name)) {
+        result.setData(jp.getBinaryValue());
+      } else if ("alg".equals(name)) {
+        // An unknown tag is an error: guessing the algorithm would mean
+        // decrypting with the wrong transformation.
+        int id = jp.getIntValue();
+        result.setAlgorithmId(
+          AlgorithmId.fromId(id).orElseThrow(
+            () -> ctxt.mappingException(String.format("Unknown algorithm id `%d`", id))
+          )
+        );
+      } else {
+        jp.skipChildren();
+      }
+    }
+
+    if (token != JsonToken.END_OBJECT) {
+      throw ctxt.mappingException(EncryptedData.class, token);
+    }
 
     return result;
   }
-}
\ No newline at end of file
+}
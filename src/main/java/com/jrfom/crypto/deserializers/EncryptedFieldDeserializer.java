@@ -0,0 +1,88 @@
+package com.jrfom.crypto.deserializers;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+
+/**
+ * Deserializes the value of an {@link com.jrfom.crypto.Encrypted} property:
+ * an {@link com.jrfom.crypto.EncryptedData} object is read, decrypted, and
+ * the plaintext JSON is read with the property's own deserializer. Installed
+ * by {@link com.jrfom.crypto.EncryptionModule}.
+ *
+ * @since 0.4.0
+ */
+public class EncryptedFieldDeserializer extends JsonDeserializer<Object>
+  implements ContextualDeserializer
+{
+  private final CryptoTool tool;
+  private final JsonFactory factory;
+  private final BeanProperty property;
+  private final JsonDeserializer<Object> valueDeserializer;
+  private final EncryptedDataDeserializer encryptedDataDeserializer = new EncryptedDataDeserializer();
+
+  public EncryptedFieldDeserializer(CryptoTool tool, JsonFactory factory) {
+    this(tool, factory, null, null);
+  }
+
+  private EncryptedFieldDeserializer(CryptoTool tool, JsonFactory factory, BeanProperty property,
+                                     JsonDeserializer<Object> valueDeserializer)
+  {
+    this.tool = tool;
+    this.factory = factory;
+    this.property = property;
+    this.valueDeserializer = valueDeserializer;
+  }
+
+  /**
+   * Resolve the deserializer for the property's declared type once, when
+   * the enclosing bean deserializer is built.
+   */
+  @Override
+  public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property)
+    throws JsonMappingException
+  {
+    JsonDeserializer<Object> deserializer =
+      ctxt.findContextualValueDeserializer(property.getType(), property);
+
+    return new EncryptedFieldDeserializer(this.tool, this.factory, property, deserializer);
+  }
+
+  @Override
+  public Object deserialize(JsonParser jp, DeserializationContext ctxt)
+    throws IOException, JsonProcessingException
+  {
+    if (this.valueDeserializer == null) {
+      throw ctxt.mappingException("Encrypted property deserializer was not contextualized");
+    }
+
+    EncryptedData encryptedData = this.encryptedDataDeserializer.deserialize(jp, ctxt);
+    Optional<byte[]> plainText = this.tool.decrypt(encryptedData);
+
+    if (!plainText.isPresent()) {
+      throw ctxt.mappingException(
+        "Could not decrypt property `" + this.property.getName() + "`"
+      );
+    }
+
+    byte[] bytes = plainText.get();
+    try (JsonParser valueParser = this.factory.createParser(bytes)) {
+      valueParser.setCodec(jp.getCodec());
+      valueParser.nextToken();
+      return this.valueDeserializer.deserialize(valueParser, ctxt);
+    } finally {
+      Arrays.fill(bytes, (byte) 0);
+    }
+  }
+}
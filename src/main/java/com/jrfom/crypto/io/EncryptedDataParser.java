@@ -0,0 +1,104 @@
+package com.jrfom.crypto.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jrfom.crypto.EncryptedData;
+
+/**
+ * <p>Incrementally parses serialized {@link com.jrfom.crypto.EncryptedData}
+ * records without decrypting them. The input may be either newline delimited
+ * JSON or a single JSON array of objects; the format is detected from the
+ * first token. Only one record is held in memory at a time.</p>
+ *
+ * <p>Malformed JSON ends the iteration with an
+ * {@link java.io.UncheckedIOException}. Instances are not thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptedDataParser implements Iterator<EncryptedData>, Closeable {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final JsonParser parser;
+
+  private EncryptedData next;
+  private boolean started = false;
+  private boolean array = false;
+  private boolean exhausted = false;
+
+  /**
+   * @param in The serialized records. It is closed when the parser is closed.
+   * @throws IOException If the input cannot be read
+   */
+  public EncryptedDataParser(InputStream in) throws IOException {
+    this.parser = mapper.getFactory().createParser(in);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws java.io.UncheckedIOException If the input is not valid JSON
+   */
+  @Override
+  public boolean hasNext() {
+    if (this.next == null && !this.exhausted) {
+      try {
+        this.next = this.readRecord();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return this.next != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws java.io.UncheckedIOException If the input is not valid JSON
+   */
+  @Override
+  public EncryptedData next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    EncryptedData result = this.next;
+    this.next = null;
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.exhausted = true;
+    this.next = null;
+    this.parser.close();
+  }
+
+  private EncryptedData readRecord() throws IOException {
+    JsonToken token = this.parser.nextToken();
+
+    if (!this.started) {
+      this.started = true;
+
+      if (token == JsonToken.START_ARRAY) {
+        this.array = true;
+        token = this.parser.nextToken();
+      }
+    }
+
+    if (token == null || (this.array && token == JsonToken.END_ARRAY)) {
+      this.exhausted = true;
+      return null;
+    }
+
+    return mapper.readValue(this.parser, EncryptedData.class);
+  }
+}
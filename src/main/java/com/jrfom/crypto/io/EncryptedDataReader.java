@@ -0,0 +1,181 @@
+package com.jrfom.crypto.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Streams a file of serialized {@link com.jrfom.crypto.EncryptedData}
+ * records and decrypts them on a worker pool. The input may be either
+ * newline delimited JSON (one object per line) or a single JSON array of
+ * objects; the format is detected from the first token.</p>
+ *
+ * <p>Records are parsed incrementally by an
+ * {@link com.jrfom.crypto.io.EncryptedDataParser} and at most
+ * {@code maxInFlight} of them are held, parsed or decrypted, at any time, so
+ * memory use does not depend on the size of the input. Results are returned in input order.
+ * A record that cannot be decrypted yields an empty {@link java.util.Optional}
+ * so the remaining records can still be processed; malformed JSON ends the
+ * iteration with an {@link java.io.UncheckedIOException}.</p>
+ *
+ * <p>Instances are not thread safe and should be closed when finished.
+ * See {@link com.jrfom.crypto.io.EncryptedDataWriter} for the matching
+ * writer.</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptedDataReader implements Iterator<Optional<byte[]>>, Closeable {
+  private static final Logger log = LoggerFactory.getLogger(EncryptedDataReader.class);
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+  private final EncryptedDataParser parser;
+  private final CryptoTool tool;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int maxInFlight;
+  private final ArrayDeque<Future<Optional<byte[]>>> pending;
+
+  private long count = 0;
+
+  /**
+   * Create a reader that decrypts on a private pool with one thread per
+   * available processor.
+   *
+   * @param in The serialized records. It is closed when the reader is closed.
+   * @param tool The tool used to decrypt each record
+   * @throws IOException If the input cannot be read
+   */
+  public EncryptedDataReader(InputStream in, CryptoTool tool) throws IOException {
+    this(
+      in,
+      tool,
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemonThreads()),
+      DEFAULT_MAX_IN_FLIGHT,
+      true
+    );
+  }
+
+  /**
+   * @param in The serialized records. It is closed when the reader is closed.
+   * @param tool The tool used to decrypt each record
+   * @param executor The pool to decrypt on. It is not shut down by the reader.
+   * @param maxInFlight The maximum number of records parsed ahead of the
+   *                    caller
+   * @throws IOException If the input cannot be read
+   */
+  public EncryptedDataReader(InputStream in, CryptoTool tool, ExecutorService executor,
+                             int maxInFlight) throws IOException
+  {
+    this(in, tool, executor, maxInFlight, false);
+  }
+
+  private EncryptedDataReader(InputStream in, CryptoTool tool, ExecutorService executor,
+                              int maxInFlight, boolean ownsExecutor) throws IOException
+  {
+    this.parser = new EncryptedDataParser(in);
+    this.tool = tool;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.pending = new ArrayDeque<>(this.maxInFlight);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws java.io.UncheckedIOException If the input is not valid JSON
+   */
+  @Override
+  public boolean hasNext() {
+    this.fill();
+    return !this.pending.isEmpty();
+  }
+
+  /**
+   * Get the next decrypted record, waiting for its decryption to finish.
+   *
+   * @return The plaintext, or an empty Optional if the record could not be
+   *         decrypted
+   * @throws java.io.UncheckedIOException If the input is not valid JSON
+   */
+  @Override
+  public Optional<byte[]> next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    Future<Optional<byte[]>> future = this.pending.poll();
+    Optional<byte[]> result = Optional.empty();
+
+    try {
+      result = future.get();
+    } catch (ExecutionException e) {
+      log.error("Could not decrypt record: `{}`", e.getCause().getMessage());
+      log.debug(e.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while decrypting record: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    // Keep the pool busy while the caller handles this record.
+    this.fill();
+
+    return result;
+  }
+
+  /**
+   * The number of records parsed so far.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Cancel any outstanding work and close the input.
+   */
+  @Override
+  public void close() throws IOException {
+    for (Future<Optional<byte[]>> future : this.pending) {
+      future.cancel(false);
+    }
+    this.pending.clear();
+
+    if (this.ownsExecutor) {
+      this.executor.shutdownNow();
+    }
+
+    this.parser.close();
+  }
+
+  private void fill() {
+    while (this.pending.size() < this.maxInFlight && this.parser.hasNext()) {
+      EncryptedData record = this.parser.next();
+      this.count += 1;
+      this.pending.offer(this.executor.submit(() -> this.tool.decrypt(record)));
+    }
+  }
+
+  static ThreadFactory daemonThreads() {
+    return (runnable) -> {
+      Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,245 @@
+package com.jrfom.crypto.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+
+/**
+ * <p>Encrypts plaintext records on a worker pool and streams the resulting
+ * {@link com.jrfom.crypto.EncryptedData} as newline delimited JSON or as a
+ * single JSON array. Records are written in the order they are given, and at
+ * most {@code maxInFlight} of them are pending at any time; once that limit
+ * is reached {@link EncryptedDataWriter#write(byte[])} waits for the oldest
+ * record to be written.</p>
+ *
+ * <p>The output can be read back with a
+ * {@link com.jrfom.crypto.io.EncryptedDataReader}. Instances are not thread
+ * safe and must be closed to write any pending records (and the closing
+ * bracket of an array).</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptedDataWriter implements Closeable, Flushable {
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+  // Flushing after every record would defeat the generator's buffering.
+  private static final ObjectMapper mapper =
+    new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+  /**
+   * The layout of the written records.
+   */
+  public enum Format {
+    /** One JSON object per line. */
+    NDJSON,
+    /** A single JSON array of objects. */
+    JSON_ARRAY
+  }
+
+  private final JsonGenerator generator;
+  private final CryptoTool tool;
+  private final Format format;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int maxInFlight;
+  private final ArrayDeque<Future<Optional<EncryptedData>>> pending;
+
+  private long count = 0;
+  private boolean closed = false;
+
+  /**
+   * Create a newline delimited JSON writer that encrypts on a private pool
+   * with one thread per available processor.
+   *
+   * @param out The destination. It is closed when the writer is closed.
+   * @param tool The tool used to encrypt each record
+   * @throws IOException If the output cannot be written
+   */
+  public EncryptedDataWriter(OutputStream out, CryptoTool tool) throws IOException {
+    this(
+      out,
+      tool,
+      Format.NDJSON,
+      Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        EncryptedDataReader.daemonThreads()
+      ),
+      DEFAULT_MAX_IN_FLIGHT,
+      true
+    );
+  }
+
+  /**
+   * @param out The destination. It is closed when the writer is closed.
+   * @param tool The tool used to encrypt each record
+   * @param format The layout of the written records
+   * @param executor The pool to encrypt on. It is not shut down by the writer.
+   * @param maxInFlight The maximum number of records waiting to be written
+   * @throws IOException If the output cannot be written
+   */
+  public EncryptedDataWriter(OutputStream out, CryptoTool tool, Format format,
+                             ExecutorService executor, int maxInFlight) throws IOException
+  {
+    this(out, tool, format, executor, maxInFlight, false);
+  }
+
+  private EncryptedDataWriter(OutputStream out, CryptoTool tool, Format format,
+                              ExecutorService executor, int maxInFlight,
+                              boolean ownsExecutor) throws IOException
+  {
+    this.generator = mapper.getFactory().createGenerator(out);
+    this.tool = tool;
+    this.format = format;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.pending = new ArrayDeque<>(this.maxInFlight);
+
+    if (format == Format.JSON_ARRAY) {
+      this.generator.writeStartArray();
+    } else {
+      // Records are separated by the newline written after each of them.
+      this.generator.setRootValueSeparator(new SerializedString(""));
+    }
+  }
+
+  /**
+   * Queue {@code plainText} for encryption. The array must not be modified
+   * until the record has been written.
+   *
+   * @param plainText The record to encrypt
+   * @throws IOException If an earlier record could not be encrypted or
+   *                     written
+   */
+  public void write(byte[] plainText) throws IOException {
+    this.ensureCapacity();
+    this.pending.offer(this.executor.submit(() -> this.tool.encrypt(plainText)));
+  }
+
+  /**
+   * Queue an already encrypted record. It is written after any records
+   * queued before it.
+   *
+   * @param encryptedData The record to write
+   * @throws IOException If an earlier record could not be encrypted or
+   *                     written
+   */
+  public void write(EncryptedData encryptedData) throws IOException {
+    this.ensureCapacity();
+    this.pending.offer(CompletableFuture.completedFuture(Optional.of(encryptedData)));
+  }
+
+  /**
+   * Write every pending record and flush the output.
+   *
+   * @throws IOException If a record could not be encrypted or written
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!this.pending.isEmpty()) {
+      this.writeOldest();
+    }
+
+    this.generator.flush();
+  }
+
+  /**
+   * The number of records written so far.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Write every pending record, finish the array if needed, and close the
+   * output. If a record fails, the array is left unterminated so that the
+   * truncated output cannot be read as complete.
+   *
+   * @throws IOException If a record could not be encrypted or written
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    boolean complete = false;
+
+    try {
+      while (!this.pending.isEmpty()) {
+        this.writeOldest();
+      }
+
+      if (this.format == Format.JSON_ARRAY) {
+        this.generator.writeEndArray();
+      }
+      complete = true;
+    } finally {
+      for (Future<Optional<EncryptedData>> future : this.pending) {
+        future.cancel(false);
+      }
+      this.pending.clear();
+
+      if (this.ownsExecutor) {
+        this.executor.shutdownNow();
+      }
+
+      // Closing would otherwise end the array, and a reader would accept
+      // output that is missing records as complete.
+      if (!complete) {
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+      }
+      this.generator.close();
+    }
+  }
+
+  private void ensureCapacity() throws IOException {
+    if (this.closed) {
+      throw new IOException("Writer is closed");
+    }
+
+    while (this.pending.size() >= this.maxInFlight) {
+      this.writeOldest();
+    }
+  }
+
+  private void writeOldest() throws IOException {
+    Future<Optional<EncryptedData>> future = this.pending.poll();
+    Optional<EncryptedData> encryptedData;
+
+    try {
+      encryptedData = future.get();
+    } catch (ExecutionException e) {
+      throw new IOException("Could not encrypt record " + this.count, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while encrypting record " + this.count, e);
+    }
+
+    if (!encryptedData.isPresent()) {
+      throw new IOException("Could not encrypt record " + this.count);
+    }
+
+    mapper.writeValue(this.generator, encryptedData.get());
+    if (this.format == Format.NDJSON) {
+      this.generator.writeRaw('\n');
+    }
+
+    this.count += 1;
+  }
+}
@@ -0,0 +1,163 @@
+package com.jrfom.crypto.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * <p>A read only {@link java.nio.channels.SeekableByteChannel} over the
+ * decrypted contents of a file written by
+ * {@link com.jrfom.crypto.io.SeekableEncryptedFile}. Positions and sizes
+ * are plaintext positions and sizes.</p>
+ *
+ * <p>Reads decrypt only the segments that cover the requested range. The
+ * most recently decrypted segment is kept, so sequential reads decrypt each
+ * segment once.</p>
+ *
+ * <p>Instances are not thread safe.</p>
+ *
+ * @since 0.4.0
+ */
+public class SeekableEncryptedChannel implements SeekableByteChannel {
+  private final SeekableByteChannel channel;
+  private final Cipher cipher;
+  private final Key key;
+  private final byte[] nonce;
+  private final int segmentSize;
+
+  private final byte[] encryptedSegment;
+  private final byte[] segment;
+  private long segmentIndex = -1;
+  private int segmentLength;
+  private long position;
+
+  SeekableEncryptedChannel(SeekableByteChannel channel, Cipher cipher, Key key,
+                           byte[] nonce, int segmentSize)
+  {
+    this.channel = channel;
+    this.cipher = cipher;
+    this.key = key;
+    this.nonce = nonce;
+    this.segmentSize = segmentSize;
+    this.encryptedSegment = new byte[segmentSize];
+    this.segment = new byte[segmentSize];
+  }
+
+  public int getSegmentSize() {
+    return this.segmentSize;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    this.ensureOpen();
+
+    long size = this.size();
+    if (this.position >= size) {
+      return -1;
+    }
+
+    int total = 0;
+    while (dst.hasRemaining() && this.position < size) {
+      long index = this.position / this.segmentSize;
+      this.loadSegment(index, size);
+
+      int offset = (int) (this.position - index * this.segmentSize);
+      int length = Math.min(dst.remaining(), this.segmentLength - offset);
+      dst.put(this.segment, offset, length);
+
+      this.position += length;
+      total += length;
+    }
+
+    return total;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public long position() throws IOException {
+    this.ensureOpen();
+    return this.position;
+  }
+
+  @Override
+  public SeekableByteChannel position(long newPosition) throws IOException {
+    this.ensureOpen();
+
+    if (newPosition < 0) {
+      throw new IllegalArgumentException("Position must not be negative");
+    }
+
+    this.position = newPosition;
+    return this;
+  }
+
+  @Override
+  public long size() throws IOException {
+    return Math.max(0, this.channel.size() - SeekableEncryptedFile.HEADER_SIZE);
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size) {
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return this.channel.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  private void loadSegment(long index, long size) throws IOException {
+    if (index == this.segmentIndex) {
+      return;
+    }
+
+    long start = index * this.segmentSize;
+    int length = (int) Math.min(this.segmentSize, size - start);
+
+    ByteBuffer buffer = ByteBuffer.wrap(this.encryptedSegment, 0, length);
+    this.channel.position(SeekableEncryptedFile.HEADER_SIZE + start);
+    while (buffer.hasRemaining()) {
+      if (this.channel.read(buffer) == -1) {
+        throw new IOException("Unexpected end of encrypted file");
+      }
+    }
+
+    byte[] counter = SeekableEncryptedFile.counterBlock(
+      this.nonce,
+      start / SeekableEncryptedFile.BLOCK_SIZE
+    );
+
+    try {
+      this.cipher.init(Cipher.DECRYPT_MODE, this.key, new IvParameterSpec(counter));
+      this.cipher.doFinal(this.encryptedSegment, 0, length, this.segment, 0);
+    } catch (GeneralSecurityException e) {
+      this.segmentIndex = -1;
+      throw new IOException("Could not decrypt segment " + index, e);
+    }
+
+    this.segmentIndex = index;
+    this.segmentLength = length;
+  }
+
+  private void ensureOpen() throws IOException {
+    if (!this.channel.isOpen()) {
+      throw new ClosedChannelException();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.jrfom.crypto.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+
+import com.jrfom.crypto.CipherConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Reads and writes a seekable encrypted file format. The plaintext is
+ * encrypted with "AES/CTR/NoPadding", so ciphertext offset {@code n} holds
+ * plaintext offset {@code n} and any block can be decrypted on its own by
+ * deriving its counter from the random nonce in the header. No per-segment
+ * index is needed.</p>
+ *
+ * <p>The file layout is:</p>
+ *
+ * <ul>
+ *   <li>4 bytes: the magic number "CUSE"</li>
+ *   <li>1 byte: the format version</li>
+ *   <li>4 bytes: the segment size used when reading</li>
+ *   <li>16 bytes: the nonce (initial counter block)</li>
+ *   <li>the ciphertext</li>
+ * </ul>
+ *
+ * <p>Files are read with a {@link com.jrfom.crypto.io.SeekableEncryptedChannel},
+ * which decrypts only the segments that cover the requested range.</p>
+ *
+ * <p><strong>Note:</strong> CTR mode provides confidentiality only. Pair the
+ * file with an {@link com.jrfom.crypto.HMAC} if it must be tamper evident.</p>
+ *
+ * @since 0.4.0
+ */
+public class SeekableEncryptedFile {
+  private static final Logger log = LoggerFactory.getLogger(SeekableEncryptedFile.class);
+
+  static final byte[] MAGIC = {'C', 'U', 'S', 'E'};
+  public static final byte VERSION = 1;
+  public static final int NONCE_SIZE = 16;
+  public static final int HEADER_SIZE = MAGIC.length + 1 + 4 + NONCE_SIZE;
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+  static final int BLOCK_SIZE = 16;
+
+  /**
+   * Encrypt a file using the {@link #DEFAULT_SEGMENT_SIZE}.
+   *
+   * @see SeekableEncryptedFile#encrypt(Key, ReadableByteChannel, WritableByteChannel, int)
+   */
+  public static Optional<Long> encrypt(Key key, Path source, Path target) {
+    Optional<Long> result = Optional.empty();
+
+    try (
+      FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+      FileChannel out = FileChannel.open(
+        target,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE
+      )
+    ) {
+      result = SeekableEncryptedFile.encrypt(key, in, out, DEFAULT_SEGMENT_SIZE);
+    } catch (IOException e) {
+      log.error("Could not open file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Encrypt everything readable from {@code source} and write the header and
+   * ciphertext to {@code target}. Neither channel is closed.
+   *
+   * @param key An AES {@link java.security.Key}
+   * @param source The plaintext to encrypt
+   * @param target Where the encrypted file is written
+   * @param segmentSize The number of bytes readers decrypt at a time. Must be
+   *                    a positive multiple of 16.
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped count of plaintext bytes encrypted.
+   */
+  public static Optional<Long> encrypt(Key key, ReadableByteChannel source,
+                                       WritableByteChannel target, int segmentSize)
+  {
+    Optional<Long> result = Optional.empty();
+
+    if (segmentSize <= 0 || segmentSize % BLOCK_SIZE != 0) {
+      log.error("Segment size must be a positive multiple of 16: `{}`", segmentSize);
+      return result;
+    }
+
+    byte[] nonce = new byte[NONCE_SIZE];
+    new SecureRandom().nextBytes(nonce);
+
+    try {
+      Cipher cipher = Cipher.getInstance(CipherConstants.AesCtrNoPad());
+      cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(nonce));
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.put(MAGIC).put(VERSION).putInt(segmentSize).put(nonce);
+      header.flip();
+      writeFully(target, header);
+
+      ByteBuffer plain = ByteBuffer.allocate(segmentSize);
+      ByteBuffer encrypted = ByteBuffer.allocate(segmentSize);
+      long total = 0;
+
+      while (source.read(plain) != -1 || plain.position() > 0) {
+        plain.flip();
+        total += plain.remaining();
+        cipher.update(plain, encrypted);
+        encrypted.flip();
+        writeFully(target, encrypted);
+        plain.clear();
+        encrypted.clear();
+      }
+
+      result = Optional.of(total);
+    } catch (GeneralSecurityException e) {
+      log.error("Could not encrypt data: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } catch (IOException e) {
+      log.error("Could not perform IO: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Open an encrypted file for random access reads.
+   *
+   * @param key The AES {@link java.security.Key} the file was encrypted with
+   * @param path The encrypted file
+   * @return An empty {@link java.util.Optional} if there was an error.
+   *         Otherwise an Optional wrapped, read only channel of the
+   *         decrypted contents. Closing it closes the file.
+   */
+  public static Optional<SeekableEncryptedChannel> open(Key key, Path path) {
+    Optional<SeekableEncryptedChannel> result = Optional.empty();
+
+    try {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      result = SeekableEncryptedFile.open(key, channel);
+
+      if (!result.isPresent()) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      log.error("Could not open file: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Wrap a channel positioned anywhere over an encrypted file. The returned
+   * channel takes ownership of {@code channel}.
+   *
+   * @see SeekableEncryptedFile#open(Key, Path)
+   */
+  public static Optional<SeekableEncryptedChannel> open(Key key, SeekableByteChannel channel) {
+    Optional<SeekableEncryptedChannel> result = Optional.empty();
+
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      channel.position(0);
+      while (header.hasRemaining() && channel.read(header) != -1) {
+        // keep reading until the header is complete
+      }
+
+      if (header.hasRemaining()) {
+        log.error("File is too short to be a seekable encrypted file");
+        return result;
+      }
+
+      header.flip();
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      byte version = header.get();
+      int segmentSize = header.getInt();
+      byte[] nonce = new byte[NONCE_SIZE];
+      header.get(nonce);
+
+      if (!Arrays.equals(MAGIC, magic) || version != VERSION) {
+        log.error("Unrecognized file header");
+      } else if (segmentSize <= 0 || segmentSize % BLOCK_SIZE != 0) {
+        log.error("Invalid segment size in header: `{}`", segmentSize);
+      } else {
+        Cipher cipher = Cipher.getInstance(CipherConstants.AesCtrNoPad());
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(nonce));
+        result = Optional.of(
+          new SeekableEncryptedChannel(channel, cipher, key, nonce, segmentSize)
+        );
+      }
+    } catch (GeneralSecurityException e) {
+      log.error("Could not initialize cipher: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } catch (IOException e) {
+      log.error("Could not read header: `{}`", e.getMessage());
+      log.debug(e.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Compute the counter block for the 16 byte block at {@code blockIndex} by
+   * adding the index to the nonce as a 128-bit big-endian integer.
+   */
+  static byte[] counterBlock(byte[] nonce, long blockIndex) {
+    byte[] counter = nonce.clone();
+    long carry = blockIndex;
+
+    for (int i = counter.length - 1; i >= 0 && carry != 0; i -= 1) {
+      long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+      counter[i] = (byte) sum;
+      carry = (carry >>> 8) + (sum >>> 8);
+    }
+
+    return counter;
+  }
+
+  private static void writeFully(WritableByteChannel channel, ByteBuffer buffer)
+    throws IOException
+  {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.jrfom.crypto.jfr;
+
+/**
+ * <p>Starts {@link com.jrfom.crypto.jfr.CryptoTrace} instances that emit
+ * JDK Flight Recorder events for crypto operations. The events are:</p>
+ *
+ * <ul>
+ *   <li>"com.jrfom.crypto.Cipher": encryption and decryption</li>
+ *   <li>"com.jrfom.crypto.Hmac": HMAC computation</li>
+ *   <li>"com.jrfom.crypto.KeyGeneration": key generation</li>
+ *   <li>"com.jrfom.crypto.Json": {@link com.jrfom.crypto.EncryptedData}
+ *       serialization and parsing</li>
+ * </ul>
+ *
+ * <p>Each event records the operation, the algorithm, the payload size,
+ * whether it succeeded, and how long was spent generating random bytes,
+ * setting up the primitive, and doing the work. They are disabled unless a
+ * recording enables them by name, e.g. with
+ * {@code com.jrfom.crypto.Cipher#enabled=true} in its settings or
+ * {@code recording.enable("com.jrfom.crypto.Cipher")}.</p>
+ *
+ * <p>On a runtime without the {@code jdk.jfr} module, or older than Java
+ * 11, every method returns {@link com.jrfom.crypto.jfr.CryptoTrace#NOOP};
+ * no event class is loaded.</p>
+ *
+ * @since 0.4.0
+ */
+public final class CryptoEvents {
+  private static final TraceFactory events = CryptoEvents.detect();
+
+  private CryptoEvents() {}
+
+  /**
+   * Whether the runtime supports JDK Flight Recorder events.
+   */
+  public static boolean isAvailable() {
+    return events != null;
+  }
+
+  /**
+   * @param operation E.g. "encrypt" or "decrypt"
+   * @param transformation The cipher transformation, e.g.
+   *                       "AES/CBC/PKCS5Padding"
+   */
+  public static CryptoTrace cipher(String operation, String transformation) {
+    return (events == null) ? CryptoTrace.NOOP : events.cipher(operation, transformation);
+  }
+
+  /**
+   * @param algorithm The MAC algorithm, e.g. "HmacSHA256"
+   */
+  public static CryptoTrace hmac(String algorithm) {
+    return (events == null) ? CryptoTrace.NOOP : events.hmac(algorithm);
+  }
+
+  /**
+   * @param algorithm The key algorithm, e.g. "AES"
+   */
+  public static CryptoTrace keyGeneration(String algorithm) {
+    return (events == null) ? CryptoTrace.NOOP : events.keyGeneration(algorithm);
+  }
+
+  /**
+   * @param operation E.g. "serialize" or "parse"
+   */
+  public static CryptoTrace json(String operation) {
+    return (events == null) ? CryptoTrace.NOOP : events.json(operation);
+  }
+
+  private static TraceFactory detect() {
+    TraceFactory result = null;
+
+    try {
+      Class.forName("jdk.jfr.Event");
+      // JfrEvents is compiled for Java 11, so loading it fails on a Java 8
+      // runtime that has backported jdk.jfr. It can also fail when the module
+      // is not resolved in a custom runtime image.
+      result = (TraceFactory) Class.forName("com.jrfom.crypto.jfr.JfrEvents")
+        .getDeclaredConstructor()
+        .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      result = null;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,52 @@
+package com.jrfom.crypto.jfr;
+
+/**
+ * <p>Times a single crypto operation for a JDK Flight Recorder event. The
+ * operation's time is split into phases, each ended by a call to
+ * {@link CryptoTrace#phase}; the time after the last phase is attributed to
+ * {@link CryptoTrace.Phase#OPERATION} when {@link CryptoTrace#end} is
+ * called.</p>
+ *
+ * <p>Traces are obtained from {@link com.jrfom.crypto.jfr.CryptoEvents}.
+ * When recording is unavailable or the event is disabled they are the
+ * shared {@link CryptoTrace#NOOP} instance, so tracing costs a field read
+ * and two empty calls. A trace is used by one thread, for one
+ * operation.</p>
+ *
+ * @since 0.4.0
+ */
+public interface CryptoTrace {
+  CryptoTrace NOOP = new CryptoTrace() {
+    @Override
+    public void phase(Phase phase) {}
+
+    @Override
+    public void end(long payloadSize, boolean success) {}
+  };
+
+  enum Phase {
+    /** Generating random bytes, e.g. an IV or key material. */
+    RANDOM,
+    /** Getting and initializing a Cipher, Mac or KeyGenerator. */
+    SETUP,
+    /** The work itself, e.g. doFinal or JSON processing. */
+    OPERATION
+  }
+
+  /**
+   * Attribute the time since the previous phase, or since the trace began,
+   * to {@code phase}.
+   *
+   * @param phase The phase that just finished
+   */
+  void phase(Phase phase);
+
+  /**
+   * Finish the trace and commit its event if the recording wants it.
+   *
+   * @param payloadSize The number of bytes processed, or the key size in
+   *                    bits for key generation
+   * @param success Whether the operation produced a result
+   */
+  void end(long payloadSize, boolean success);
+}
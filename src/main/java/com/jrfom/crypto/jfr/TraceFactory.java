@@ -0,0 +1,17 @@
+package com.jrfom.crypto.jfr;
+
+/**
+ * Creates the traces behind {@link com.jrfom.crypto.jfr.CryptoEvents}. The
+ * Flight Recorder implementation, {@code JfrEvents}, lives in
+ * {@code src/main/java11} because it is compiled for Java 11; it is loaded
+ * by name so that this package still compiles and loads on Java 8.
+ */
+interface TraceFactory {
+  CryptoTrace cipher(String operation, String transformation);
+
+  CryptoTrace hmac(String algorithm);
+
+  CryptoTrace keyGeneration(String algorithm);
+
+  CryptoTrace json(String operation);
+}
@@ -0,0 +1,116 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link com.jrfom.crypto.rotation.ReEncryptionCheckpoint} stored as two
+ * decimal numbers, the processed count and the sink position, in a text
+ * file. Each save writes and syncs a temporary file next to the checkpoint,
+ * atomically moves it into place, and syncs the directory, so a crash never
+ * leaves a partially written or lost checkpoint.
+ *
+ * @since 0.4.0
+ */
+public class FileCheckpoint implements ReEncryptionCheckpoint {
+  private final Path path;
+  private final Path temporary;
+
+  /**
+   * @param path The checkpoint file. It need not exist yet.
+   */
+  public FileCheckpoint(Path path) {
+    this.path = path;
+    this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long load() throws IOException {
+    return this.read()[0];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long loadSinkPosition() throws IOException {
+    return this.read()[1];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void save(long processed, long sinkPosition) throws IOException {
+    byte[] contents = (processed + " " + sinkPosition).getBytes(StandardCharsets.US_ASCII);
+
+    try (FileChannel channel = FileChannel.open(
+      this.temporary,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING
+    )) {
+      ByteBuffer buffer = ByteBuffer.wrap(contents);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+
+    Files.move(
+      this.temporary,
+      this.path,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE
+    );
+    this.syncDirectory();
+  }
+
+  /**
+   * Remove the checkpoint, e.g. once a run has completed.
+   */
+  public void delete() throws IOException {
+    Files.deleteIfExists(this.path);
+  }
+
+  private long[] read() throws IOException {
+    if (!Files.exists(this.path)) {
+      return new long[] {0, 0};
+    }
+
+    String contents = new String(Files.readAllBytes(this.path), StandardCharsets.US_ASCII).trim();
+    String[] fields = contents.split("\\s+");
+
+    try {
+      return new long[] {
+        Long.parseLong(fields[0]),
+        (fields.length > 1) ? Long.parseLong(fields[1]) : 0
+      };
+    } catch (NumberFormatException e) {
+      throw new IOException("Checkpoint file is not valid: " + this.path, e);
+    }
+  }
+
+  // Makes the rename itself durable. Not every platform can open a
+  // directory for syncing; there the rename is as durable as it gets.
+  private void syncDirectory() {
+    Path directory = this.path.toAbsolutePath().getParent();
+
+    if (directory != null) {
+      try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+        channel.force(true);
+      } catch (IOException e) {
+        // Not supported, e.g. on Windows.
+      }
+    }
+  }
+}
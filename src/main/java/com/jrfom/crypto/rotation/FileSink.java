@@ -0,0 +1,98 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.io.EncryptedDataWriter;
+
+/**
+ * <p>A resumable {@link com.jrfom.crypto.rotation.ReEncryptionSink} that
+ * appends records to a file as newline delimited JSON, readable with an
+ * {@link com.jrfom.crypto.io.EncryptedDataParser}.</p>
+ *
+ * <p>{@link FileSink#flush} syncs the file to disk, and its byte length is
+ * the position saved with each checkpoint. On resume the file is truncated
+ * to that length, so records written after the checkpoint are written
+ * exactly once more instead of being duplicated. A fresh run truncates the
+ * file to empty.</p>
+ *
+ * @since 0.4.0
+ */
+public class FileSink implements ReEncryptionSink, Closeable {
+  private final FileChannel channel;
+  private final EncryptedDataWriter writer;
+
+  /**
+   * @param path The output file. It is created if it does not exist.
+   * @throws IOException If the file cannot be opened
+   */
+  public FileSink(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+    // Records arrive already encrypted, so the writer needs no tool or pool.
+    this.writer = new EncryptedDataWriter(
+      Channels.newOutputStream(this.channel),
+      null,
+      EncryptedDataWriter.Format.NDJSON,
+      null,
+      1
+    );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(long index, EncryptedData data) throws IOException {
+    this.writer.write(data);
+  }
+
+  /**
+   * Write buffered records and sync the file to disk.
+   */
+  @Override
+  public void flush() throws IOException {
+    this.writer.flush();
+    this.channel.force(false);
+  }
+
+  /**
+   * The number of bytes written so far.
+   */
+  @Override
+  public long position() throws IOException {
+    return this.channel.position();
+  }
+
+  /**
+   * Discard everything after {@code position} and continue writing there.
+   */
+  @Override
+  public void resume(long processed, long position) throws IOException {
+    if (position > this.channel.size()) {
+      throw new IOException(
+        "Output is shorter than the checkpoint; it was changed or lost"
+      );
+    }
+
+    this.channel.truncate(position);
+    this.channel.position(position);
+  }
+
+  /**
+   * Flush and close the file.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+    } finally {
+      this.writer.close();
+    }
+  }
+}
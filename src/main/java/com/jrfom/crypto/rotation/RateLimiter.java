@@ -0,0 +1,30 @@
+package com.jrfom.crypto.rotation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces calls to {@link RateLimiter#acquire} evenly so that no more than
+ * the configured number happen per second. Idle time is not saved up, so
+ * there are no bursts above the rate.
+ */
+class RateLimiter {
+  private final long intervalNanos;
+  private long next;
+
+  RateLimiter(double permitsPerSecond) {
+    this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    this.next = System.nanoTime();
+  }
+
+  void acquire() throws InterruptedException {
+    long now = System.nanoTime();
+
+    if (this.next > now) {
+      TimeUnit.NANOSECONDS.sleep(this.next - now);
+    } else {
+      this.next = now;
+    }
+
+    this.next += this.intervalNanos;
+  }
+}
@@ -0,0 +1,35 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.IOException;
+
+/**
+ * Persists how far a {@link com.jrfom.crypto.rotation.ReEncryptionEngine} run
+ * has progressed so that an interrupted run can resume. A checkpoint is a
+ * pair: the number of source records processed, and the
+ * {@link com.jrfom.crypto.rotation.ReEncryptionSink#position} of the sink
+ * once exactly those records had been written. See
+ * {@link com.jrfom.crypto.rotation.FileCheckpoint} for a file based
+ * implementation.
+ *
+ * @since 0.4.0
+ */
+public interface ReEncryptionCheckpoint {
+  /**
+   * @return The number of source records already processed, or zero if no
+   *         checkpoint has been saved
+   */
+  long load() throws IOException;
+
+  /**
+   * @return The sink position saved with {@link ReEncryptionCheckpoint#load},
+   *         or zero if no checkpoint has been saved
+   */
+  long loadSinkPosition() throws IOException;
+
+  /**
+   * Durably record that the first {@code processed} source records have
+   * been re-encrypted and written to the sink, and that the sink was at
+   * {@code sinkPosition} afterwards.
+   */
+  void save(long processed, long sinkPosition) throws IOException;
+}
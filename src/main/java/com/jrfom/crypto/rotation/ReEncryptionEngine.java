@@ -0,0 +1,351 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Re-encrypts {@link com.jrfom.crypto.EncryptedData} records from one key
+ * to another, e.g. during key rotation. Each record is decrypted with the
+ * old tool and immediately encrypted with the new one on a worker pool; the
+ * plaintext is zeroed as soon as it has been encrypted.</p>
+ *
+ * <p>Records come from any {@link java.util.Iterator}, such as an
+ * {@link com.jrfom.crypto.io.EncryptedDataParser} over a file, and are handed
+ * to a {@link com.jrfom.crypto.rotation.ReEncryptionSink} in source order.
+ * At most {@code maxInFlight} records are in memory at once. The run can
+ * be throttled to a maximum number of records per second.</p>
+ *
+ * <p>When a {@link com.jrfom.crypto.rotation.ReEncryptionCheckpoint} is set,
+ * the sink is flushed every checkpoint interval and the number of processed
+ * records saved together with the sink's
+ * {@link com.jrfom.crypto.rotation.ReEncryptionSink#position}. A later run
+ * with the same checkpoint skips the records that were already processed
+ * and asks the sink to {@link com.jrfom.crypto.rotation.ReEncryptionSink#resume}
+ * from the saved position, discarding records written after it; see
+ * {@link com.jrfom.crypto.rotation.FileSink}. Once a record fails, the
+ * checkpoint no longer advances past it, so a resumed run retries it and
+ * everything after it.</p>
+ *
+ * <pre>{@code
+ * ReEncryptionEngine engine = new ReEncryptionEngine(oldTool, newTool);
+ * engine.setCheckpoint(new FileCheckpoint(Paths.get("rotation.checkpoint")));
+ * engine.setRecordsPerSecond(50_000);
+ * ReEncryptionEngine.Result result = engine.run(source, sink);
+ * }</pre>
+ *
+ * @since 0.4.0
+ */
+public class ReEncryptionEngine {
+  private static final Logger log = LoggerFactory.getLogger(ReEncryptionEngine.class);
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+  public static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+
+  private final CryptoTool from;
+  private final CryptoTool to;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+  private double recordsPerSecond = 0;
+  private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+  private ReEncryptionCheckpoint checkpoint;
+  private ReEncryptionListener listener = new ReEncryptionListener() {};
+
+  /**
+   * @param from The tool that can decrypt the existing records
+   * @param to The tool the records will be encrypted with
+   */
+  public ReEncryptionEngine(CryptoTool from, CryptoTool to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Re-encrypt every record from {@code source}, skipping those recorded by
+   * the checkpoint, and write the results to {@code sink}.
+   *
+   * @param source The records encrypted with the old key
+   * @param sink The destination for the re-encrypted records
+   * @return A summary of the run
+   * @throws IOException If the sink or checkpoint cannot be written, or
+   *                     the run is interrupted
+   */
+  public Result run(Iterator<EncryptedData> source, ReEncryptionSink sink) throws IOException {
+    long start = System.nanoTime();
+    long skipped = 0;
+    long sinkPosition = 0;
+
+    if (this.checkpoint != null) {
+      skipped = this.checkpoint.load();
+      sinkPosition = this.checkpoint.loadSinkPosition();
+    }
+
+    sink.resume(skipped, sinkPosition);
+
+    for (long i = 0; i < skipped && source.hasNext(); i += 1) {
+      source.next();
+    }
+
+    Progress progress = new Progress(skipped, start);
+    ArrayDeque<Pending> pending = new ArrayDeque<>(this.maxInFlight);
+    RateLimiter limiter = (this.recordsPerSecond > 0) ?
+      new RateLimiter(this.recordsPerSecond) : null;
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads, (runnable) -> {
+      Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+      long index = skipped;
+
+      while (source.hasNext()) {
+        if (limiter != null) {
+          limiter.acquire();
+        }
+
+        while (pending.size() >= this.maxInFlight) {
+          this.complete(pending.poll(), sink, progress);
+        }
+
+        EncryptedData record = source.next();
+        pending.offer(new Pending(index, record, executor.submit(() -> this.reEncrypt(record))));
+        index += 1;
+      }
+
+      while (!pending.isEmpty()) {
+        this.complete(pending.poll(), sink, progress);
+      }
+
+      this.checkpoint(sink, progress);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Re-encryption was interrupted");
+    } finally {
+      for (Pending remaining : pending) {
+        remaining.future.cancel(false);
+      }
+      executor.shutdownNow();
+    }
+
+    return new Result(
+      progress.processed - skipped - progress.failed,
+      progress.failed,
+      skipped,
+      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    );
+  }
+
+  public int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * Define the number of worker threads. Defaults to the number of
+   * available processors.
+   */
+  public void setThreads(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  public int getMaxInFlight() {
+    return this.maxInFlight;
+  }
+
+  /**
+   * Define the maximum number of records read ahead of the sink.
+   */
+  public void setMaxInFlight(int maxInFlight) {
+    this.maxInFlight = Math.max(1, maxInFlight);
+  }
+
+  public double getRecordsPerSecond() {
+    return this.recordsPerSecond;
+  }
+
+  /**
+   * Define the maximum number of records read from the source per second.
+   * Zero or less, the default, disables rate limiting.
+   */
+  public void setRecordsPerSecond(double recordsPerSecond) {
+    this.recordsPerSecond = recordsPerSecond;
+  }
+
+  public long getCheckpointInterval() {
+    return this.checkpointInterval;
+  }
+
+  /**
+   * Define how many records are processed between checkpoints and progress
+   * reports.
+   */
+  public void setCheckpointInterval(long checkpointInterval) {
+    this.checkpointInterval = Math.max(1, checkpointInterval);
+  }
+
+  public ReEncryptionCheckpoint getCheckpoint() {
+    return this.checkpoint;
+  }
+
+  /**
+   * Define where progress is saved so an interrupted run can resume. No
+   * checkpoint is kept when it is not set.
+   */
+  public void setCheckpoint(ReEncryptionCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
+  public ReEncryptionListener getListener() {
+    return this.listener;
+  }
+
+  public void setListener(ReEncryptionListener listener) {
+    this.listener = (listener == null) ? new ReEncryptionListener() {} : listener;
+  }
+
+  private Optional<EncryptedData> reEncrypt(EncryptedData record) {
+    Optional<byte[]> plainText = this.from.decrypt(record);
+
+    if (!plainText.isPresent()) {
+      return Optional.empty();
+    }
+
+    try {
+      return this.to.encrypt(plainText.get());
+    } finally {
+      Arrays.fill(plainText.get(), (byte) 0);
+    }
+  }
+
+  private void complete(Pending record, ReEncryptionSink sink, Progress progress)
+    throws IOException, InterruptedException
+  {
+    Optional<EncryptedData> result = Optional.empty();
+
+    try {
+      result = record.future.get();
+    } catch (ExecutionException e) {
+      log.error("Could not re-encrypt record `{}`: `{}`", record.index, e.getCause().getMessage());
+      log.debug(e.toString());
+    }
+
+    if (result.isPresent()) {
+      sink.write(record.index, result.get());
+    } else {
+      if (progress.failed == 0) {
+        // Freeze the checkpoint just before the first failure so that it is
+        // retried, along with everything after it, when the run resumes.
+        sink.flush();
+        progress.resolved = record.index;
+        progress.resolvedPosition = sink.position();
+      }
+      progress.failed += 1;
+      this.listener.onFailure(record.index, record.original);
+    }
+
+    progress.processed += 1;
+    if (progress.processed % this.checkpointInterval == 0) {
+      this.checkpoint(sink, progress);
+    }
+  }
+
+  private void checkpoint(ReEncryptionSink sink, Progress progress) throws IOException {
+    sink.flush();
+
+    if (this.checkpoint != null) {
+      if (progress.failed == 0) {
+        this.checkpoint.save(progress.processed, sink.position());
+      } else {
+        this.checkpoint.save(progress.resolved, progress.resolvedPosition);
+      }
+    }
+
+    double seconds = (System.nanoTime() - progress.start) / 1e9;
+    double rate = (seconds > 0) ? (progress.processed - progress.skipped) / seconds : 0;
+    this.listener.onProgress(progress.processed, progress.failed, rate);
+  }
+
+  /**
+   * A summary of a completed {@link ReEncryptionEngine#run}.
+   */
+  public static class Result {
+    private final long written;
+    private final long failed;
+    private final long skipped;
+    private final long elapsedMillis;
+
+    Result(long written, long failed, long skipped, long elapsedMillis) {
+      this.written = written;
+      this.failed = failed;
+      this.skipped = skipped;
+      this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * The number of records re-encrypted and written to the sink.
+     */
+    public long getWritten() {
+      return this.written;
+    }
+
+    /**
+     * The number of records that could not be re-encrypted.
+     */
+    public long getFailed() {
+      return this.failed;
+    }
+
+    /**
+     * The number of records skipped because of an earlier checkpoint.
+     */
+    public long getSkipped() {
+      return this.skipped;
+    }
+
+    public long getElapsedMillis() {
+      return this.elapsedMillis;
+    }
+  }
+
+  private static class Pending {
+    final long index;
+    final EncryptedData original;
+    final Future<Optional<EncryptedData>> future;
+
+    Pending(long index, EncryptedData original, Future<Optional<EncryptedData>> future) {
+      this.index = index;
+      this.original = original;
+      this.future = future;
+    }
+  }
+
+  private static class Progress {
+    final long skipped;
+    final long start;
+    long processed;
+    long failed;
+    // The records and sink position before the first failure.
+    long resolved;
+    long resolvedPosition;
+
+    Progress(long skipped, long start) {
+      this.skipped = skipped;
+      this.start = start;
+      this.processed = skipped;
+    }
+  }
+}
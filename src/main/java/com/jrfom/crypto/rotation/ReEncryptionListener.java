@@ -0,0 +1,34 @@
+package com.jrfom.crypto.rotation;
+
+import com.jrfom.crypto.EncryptedData;
+
+/**
+ * Receives progress reports from a
+ * {@link com.jrfom.crypto.rotation.ReEncryptionEngine}. Methods are called
+ * from the thread that invoked
+ * {@link com.jrfom.crypto.rotation.ReEncryptionEngine#run} and should return
+ * quickly.
+ *
+ * @since 0.4.0
+ */
+public interface ReEncryptionListener {
+  /**
+   * Called after every checkpoint interval and once when the run finishes.
+   *
+   * @param processed The number of source records processed, including any
+   *                  skipped because of an earlier checkpoint
+   * @param failed The number of records in this run that could not be
+   *               re-encrypted
+   * @param recordsPerSecond The throughput of this run so far
+   */
+  default void onProgress(long processed, long failed, double recordsPerSecond) {}
+
+  /**
+   * Called for each record that could not be decrypted with the old key or
+   * encrypted with the new one. The record is not written to the sink.
+   *
+   * @param index The position of the record in the source
+   * @param original The record as it was read from the source
+   */
+  default void onFailure(long index, EncryptedData original) {}
+}
@@ -0,0 +1,91 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.IOException;
+
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.io.EncryptedDataWriter;
+
+/**
+ * <p>Receives the records re-encrypted by a
+ * {@link com.jrfom.crypto.rotation.ReEncryptionEngine}. Records are given in
+ * source order from a single thread.</p>
+ *
+ * <p>Before the first record of a run the engine calls
+ * {@link ReEncryptionSink#resume} with the saved checkpoint, so the sink can
+ * discard anything written after it. Sinks keyed by index, which treat a
+ * repeated index as an update, can keep the default no-op. Append-only
+ * sinks must roll back to the saved position, as
+ * {@link com.jrfom.crypto.rotation.FileSink} does, or refuse to
+ * resume.</p>
+ *
+ * @since 0.4.0
+ */
+@FunctionalInterface
+public interface ReEncryptionSink {
+  /**
+   * Store a re-encrypted record.
+   *
+   * @param index The position of the record in the source, counting from zero
+   * @param data The record encrypted with the new key
+   * @throws IOException If the record cannot be stored
+   */
+  void write(long index, EncryptedData data) throws IOException;
+
+  /**
+   * Make every record written so far durable. It is called before each
+   * checkpoint is saved.
+   */
+  default void flush() throws IOException {}
+
+  /**
+   * The position to save with a checkpoint, e.g. a byte offset. It is read
+   * right after {@link ReEncryptionSink#flush}. Defaults to zero.
+   */
+  default long position() throws IOException {
+    return 0;
+  }
+
+  /**
+   * Prepare to continue from a checkpoint. Called once per run, before any
+   * record is written.
+   *
+   * @param processed The number of source records the checkpoint covers;
+   *                  zero for a fresh run
+   * @param position The value of {@link ReEncryptionSink#position} saved
+   *                 with the checkpoint
+   * @throws IOException If the sink cannot continue from the checkpoint
+   */
+  default void resume(long processed, long position) throws IOException {}
+
+  /**
+   * <p>A sink that writes records, in order, to an
+   * {@link com.jrfom.crypto.io.EncryptedDataWriter}.</p>
+   *
+   * <p>A stream cannot be rolled back, so this sink refuses to resume from
+   * a checkpoint that covers any records; use
+   * {@link com.jrfom.crypto.rotation.FileSink} for resumable runs. Its
+   * flush is only as durable as the writer's output stream.</p>
+   */
+  static ReEncryptionSink of(EncryptedDataWriter writer) {
+    return new ReEncryptionSink() {
+      @Override
+      public void write(long index, EncryptedData data) throws IOException {
+        writer.write(data);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        writer.flush();
+      }
+
+      @Override
+      public void resume(long processed, long position) throws IOException {
+        if (processed > 0) {
+          throw new IOException(
+            "A stream sink cannot resume from a checkpoint; use a FileSink"
+          );
+        }
+      }
+    };
+  }
+}
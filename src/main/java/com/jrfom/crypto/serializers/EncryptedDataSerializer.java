@@ -1,11 +1,9 @@
 package com.jrfom.crypto.serializers;
 
 import java.io.IOException;
-import java.util.Base64;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.jrfom.crypto.EncryptedData;
@@ -15,20 +13,21 @@ public class EncryptedDataSerializer extends JsonSerializer<EncryptedData> {
   public void serialize(EncryptedData encryptedData, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
     throws IOException, JsonProcessingException
   {
-    Base64.Encoder encoder = Base64.getEncoder();
-    ObjectCodec codec = jsonGenerator.getCodec();
-
+    // Jackson's default Base64 variant matches java.util.Base64's basic
+    // encoder, and writing binary directly avoids an intermediate String.
     jsonGenerator.writeStartObject();
 
-    jsonGenerator.writeObjectField(
-      "iv",
-      encoder.encodeToString(encryptedData.getIv())
-    );
-    jsonGenerator.writeObjectField(
-      "data",
-      encoder.encodeToString(encryptedData.getData())
-    );
+    jsonGenerator.writeFieldName("iv");
+    jsonGenerator.writeBinary(encryptedData.getIv());
+
+    jsonGenerator.writeFieldName("data");
+    jsonGenerator.writeBinary(encryptedData.getData());
+
+    // Untagged data is written exactly as it was before tags existed.
+    if (encryptedData.getAlgorithmId() != null) {
+      jsonGenerator.writeNumberField("alg", encryptedData.getAlgorithmId().getId());
+    }
 
     jsonGenerator.writeEndObject();
   }
-}
\ No newline at end of file
+}
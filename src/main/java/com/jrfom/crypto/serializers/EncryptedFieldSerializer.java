@@ -0,0 +1,78 @@
+package com.jrfom.crypto.serializers;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+
+/**
+ * Serializes the value of an {@link com.jrfom.crypto.Encrypted} property:
+ * the value is written to JSON bytes with its own serializer, encrypted, and
+ * written as an {@link com.jrfom.crypto.EncryptedData} object. Installed by
+ * {@link com.jrfom.crypto.EncryptionModule}.
+ *
+ * @since 0.4.0
+ */
+public class EncryptedFieldSerializer extends JsonSerializer<Object> {
+  private final CryptoTool tool;
+  private final JsonFactory factory;
+  private final BeanProperty property;
+  private final EncryptedDataSerializer encryptedDataSerializer = new EncryptedDataSerializer();
+
+  // Value serializers are resolved once per runtime type and reused.
+  private final ConcurrentMap<Class<?>, JsonSerializer<Object>> serializers =
+    new ConcurrentHashMap<>();
+
+  public EncryptedFieldSerializer(CryptoTool tool, JsonFactory factory, BeanProperty property) {
+    this.tool = tool;
+    this.factory = factory;
+    this.property = property;
+  }
+
+  @Override
+  public void serialize(Object value, JsonGenerator jsonGenerator, SerializerProvider serializerProvider)
+    throws IOException, JsonProcessingException
+  {
+    JsonSerializer<Object> serializer = this.serializers.get(value.getClass());
+    if (serializer == null) {
+      serializer = serializerProvider.findValueSerializer(value.getClass(), this.property);
+      this.serializers.putIfAbsent(value.getClass(), serializer);
+    }
+
+    ByteArrayBuilder buffer = new ByteArrayBuilder();
+    try (JsonGenerator valueGenerator = this.factory.createGenerator(buffer)) {
+      valueGenerator.setCodec(jsonGenerator.getCodec());
+      serializer.serialize(value, valueGenerator, serializerProvider);
+    }
+
+    byte[] plainText = buffer.toByteArray();
+    buffer.release();
+
+    Optional<EncryptedData> encryptedData = this.tool.encrypt(plainText);
+    Arrays.fill(plainText, (byte) 0);
+
+    if (!encryptedData.isPresent()) {
+      throw new JsonMappingException(
+        "Could not encrypt property `" + this.property.getName() + "`"
+      );
+    }
+
+    this.encryptedDataSerializer.serialize(
+      encryptedData.get(),
+      jsonGenerator,
+      serializerProvider
+    );
+  }
+}
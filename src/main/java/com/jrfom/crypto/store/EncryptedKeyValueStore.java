@@ -0,0 +1,708 @@
+package com.jrfom.crypto.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.EncryptedDataView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>An embedded key value store whose values are encrypted with a
+ * {@link com.jrfom.crypto.CryptoTool}. Every change is appended to a single
+ * data file as a binary record, and an in-memory index maps each key to the
+ * offset of its latest record. The file is memory mapped for reading, so a
+ * lookup decrypts only the requested value, directly from the mapping, via
+ * an {@link com.jrfom.crypto.EncryptedDataView}.</p>
+ *
+ * <p>The file starts with the magic number "CUKV" and a version byte. Each
+ * record is laid out as:</p>
+ *
+ * <ul>
+ *   <li>4 bytes: the record length, including this field</li>
+ *   <li>4 bytes: a CRC-32 of the rest of the record</li>
+ *   <li>1 byte: the record type, a put or a delete</li>
+ *   <li>4 bytes: the key length, then the UTF-8 key</li>
+ *   <li>1 byte: the IV length, then the IV</li>
+ *   <li>4 bytes: the encrypted data length, then the encrypted data</li>
+ * </ul>
+ *
+ * <p>When the store is opened the file is scanned to rebuild the index. A
+ * torn or corrupt record at the end of the file, e.g. from a crash during a
+ * write, is truncated. Keys are kept in memory; values are not.</p>
+ *
+ * <p>Overwritten and deleted records are reclaimed by compaction, which
+ * copies the live records to a new file without decrypting them. It can run
+ * on a background thread whenever at least half of the file is garbage;
+ * reads and writes continue while the live records are copied.</p>
+ *
+ * <p>The data file is limited to 2 GiB because a single mapping is used.
+ * The mapping grows geometrically: the file is extended with zeros past the
+ * last record, and the zeros are dropped when the store is closed or
+ * reopened. Instances are thread safe; lookups run concurrently.</p>
+ *
+ * @since 0.4.0
+ */
+public class EncryptedKeyValueStore implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(EncryptedKeyValueStore.class);
+
+  static final byte[] MAGIC = {'C', 'U', 'K', 'V'};
+  public static final byte VERSION = 1;
+  public static final int HEADER_SIZE = MAGIC.length + 1;
+
+  // Compaction does not start until the garbage is at least this large.
+  public static final long MINIMUM_COMPACTION_GARBAGE = 1024 * 1024;
+
+  static final byte PUT = 1;
+  static final byte DELETE = 2;
+
+  // length + crc + type + key length + IV length + data length
+  private static final int RECORD_OVERHEAD = 4 + 4 + 1 + 4 + 1 + 4;
+  private static final long MAXIMUM_FILE_SIZE = Integer.MAX_VALUE;
+  private static final long MINIMUM_MAPPING_SIZE = 64 * 1024;
+
+  private final Path path;
+  private final CryptoTool tool;
+  private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final long compactionIntervalMillis;
+  private ScheduledExecutorService compactor;
+
+  private FileChannel channel;
+  private volatile MappedByteBuffer mapped;
+  private long end;
+  private long liveBytes;
+  private boolean compacting = false;
+  private boolean closed = false;
+
+  private EncryptedKeyValueStore(Path path, CryptoTool tool, long compactionIntervalMillis) {
+    this.path = path;
+    this.tool = tool;
+    this.compactionIntervalMillis = compactionIntervalMillis;
+  }
+
+  /**
+   * Open a store without background compaction.
+   *
+   * @see EncryptedKeyValueStore#open(Path, CryptoTool, long)
+   */
+  public static Optional<EncryptedKeyValueStore> open(Path path, CryptoTool tool) {
+    return EncryptedKeyValueStore.open(path, tool, 0);
+  }
+
+  /**
+   * Open, or create, a store and rebuild its index.
+   *
+   * @param path The data file
+   * @param tool The tool used to encrypt and decrypt values
+   * @param compactionIntervalMillis How often the background thread checks
+   *                                 whether compaction is worthwhile. Zero
+   *                                 or less disables background compaction.
+   * @return An empty {@link java.util.Optional} if the file could not be
+   *         opened or is not a store. Otherwise an Optional wrapped store.
+   */
+  public static Optional<EncryptedKeyValueStore> open(Path path, CryptoTool tool,
+                                                      long compactionIntervalMillis)
+  {
+    Optional<EncryptedKeyValueStore> result = Optional.empty();
+    EncryptedKeyValueStore store = new EncryptedKeyValueStore(path, tool, compactionIntervalMillis);
+
+    try {
+      store.load();
+      store.startCompactor();
+      result = Optional.of(store);
+    } catch (IOException e) {
+      log.error("Could not open store: `{}`", e.getMessage());
+      log.debug(e.toString());
+      store.closeQuietly();
+    }
+
+    return result;
+  }
+
+  /**
+   * Decrypt the value stored for {@code key}.
+   *
+   * @return An empty {@link java.util.Optional} if there is no value or it
+   *         could not be decrypted. Otherwise an Optional wrapped byte array
+   *         of the decrypted value.
+   */
+  public Optional<byte[]> get(String key) {
+    Optional<byte[]> result = Optional.empty();
+
+    this.lock.readLock().lock();
+    try {
+      Location location = this.index.get(key);
+      if (location == null || this.closed) {
+        return result;
+      }
+
+      ByteBuffer buffer = this.mapped;
+      int offset = (int) location.offset;
+      int keyLength = buffer.getInt(offset + 9);
+      int ivOffset = offset + 13 + keyLength + 1;
+      int ivLength = buffer.get(ivOffset - 1) & 0xFF;
+      int dataOffset = ivOffset + ivLength + 4;
+      int dataLength = buffer.getInt(dataOffset - 4);
+
+      result = this.tool.decrypt(
+        new EncryptedDataView(buffer, ivOffset, ivLength, dataOffset, dataLength)
+      );
+    } finally {
+      this.lock.readLock().unlock();
+    }
+
+    return result;
+  }
+
+  /**
+   * Encrypt and store a value, replacing any previous value for the key.
+   *
+   * @return Whether the value was stored
+   */
+  public boolean put(String key, byte[] value) {
+    Optional<EncryptedData> encrypted = this.tool.encrypt(value);
+
+    if (!encrypted.isPresent()) {
+      return false;
+    }
+
+    return this.append(PUT, key, encrypted.get().getIv(), encrypted.get().getData());
+  }
+
+  /**
+   * Remove the value for {@code key}.
+   *
+   * @return Whether a value was removed
+   */
+  public boolean remove(String key) {
+    if (!this.index.containsKey(key)) {
+      return false;
+    }
+
+    return this.append(DELETE, key, new byte[0], new byte[0]);
+  }
+
+  public boolean containsKey(String key) {
+    return this.index.containsKey(key);
+  }
+
+  /**
+   * A live, unmodifiable view of the stored keys.
+   */
+  public Set<String> keys() {
+    return Collections.unmodifiableSet(this.index.keySet());
+  }
+
+  public int size() {
+    return this.index.size();
+  }
+
+  /**
+   * The size of the header and records in the data file, in bytes. The file
+   * itself may be larger while the store is open.
+   */
+  public long getFileSize() {
+    this.lock.readLock().lock();
+    try {
+      return this.end;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The number of bytes in the data file used by current values.
+   */
+  public long getLiveBytes() {
+    this.lock.readLock().lock();
+    try {
+      return this.liveBytes;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Force every change to the storage device.
+   */
+  public void sync() throws IOException {
+    this.lock.readLock().lock();
+    try {
+      this.channel.force(false);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Rewrite the data file with only the current records. Reads and writes
+   * are allowed while the live records are copied and are blocked only
+   * while the new file replaces the old one. If the new file cannot replace
+   * the old one, the store keeps using the old file.
+   *
+   * @return Whether the file was compacted
+   */
+  public boolean compact() {
+    long snapshotEnd;
+    Map<String, Location> snapshot;
+    ByteBuffer source;
+
+    this.lock.writeLock().lock();
+    try {
+      if (this.closed || this.compacting) {
+        return false;
+      }
+
+      this.compacting = true;
+      snapshotEnd = this.end;
+      snapshot = new HashMap<>(this.index);
+      source = this.mapped;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+
+    Path temporary = this.path.resolveSibling(this.path.getFileName() + ".compact");
+    boolean result = false;
+    FileChannel target = null;
+
+    try {
+      target = FileChannel.open(
+        temporary,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      );
+      Map<String, Location> compacted = new HashMap<>();
+      long position = writeHeader(target);
+
+      // Records are immutable once written, so they are copied without
+      // holding the lock and without decrypting them.
+      for (Map.Entry<String, Location> entry : snapshot.entrySet()) {
+        Location location = entry.getValue();
+        position = copyRecord(source, location, target, position, entry.getKey(), compacted);
+      }
+
+      this.lock.writeLock().lock();
+      try {
+        if (this.closed) {
+          return false;
+        }
+
+        // Apply the changes made while the snapshot was being copied.
+        ByteBuffer tail = this.mapped;
+        long offset = snapshotEnd;
+        while (offset < this.end) {
+          int length = tail.getInt((int) offset);
+          String key = readKey(tail, (int) offset);
+
+          if (tail.get((int) offset + 8) == PUT) {
+            position = copyRecord(tail, new Location(offset, length), target, position, key, compacted);
+          } else {
+            position = copyRecord(tail, new Location(offset, length), target, position, key, null);
+            compacted.remove(key);
+          }
+
+          offset += length;
+        }
+
+        target.force(true);
+        MappedByteBuffer compactedMapping = map(target, position, 0);
+
+        // The old channel stays open until the move succeeds, and the target
+        // channel follows its file, so a failed move leaves the store as it
+        // was.
+        Files.move(
+          temporary,
+          this.path,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE
+        );
+
+        FileChannel previous = this.channel;
+        this.channel = target;
+        target = null;
+        this.end = position;
+        this.mapped = compactedMapping;
+        this.index.clear();
+        this.index.putAll(compacted);
+        this.liveBytes = compacted.values().stream().mapToLong((location) -> location.length).sum();
+        result = true;
+
+        closeQuietly(previous);
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    } catch (IOException e) {
+      log.error("Could not compact store: `{}`", e.getMessage());
+      log.debug(e.toString());
+    } finally {
+      closeQuietly(target);
+
+      this.lock.writeLock().lock();
+      this.compacting = false;
+      this.lock.writeLock().unlock();
+
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (IOException e) {
+        log.debug(e.toString());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Stop background compaction and close the data file.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.compactor != null) {
+      this.compactor.shutdownNow();
+    }
+
+    this.lock.writeLock().lock();
+    try {
+      if (this.closed) {
+        return;
+      }
+
+      this.closed = true;
+      this.index.clear();
+
+      if (this.channel != null) {
+        // Drop the zeros past the last record, but only once the store has
+        // loaded; a file that failed to open is left untouched.
+        if (this.mapped != null) {
+          try {
+            this.channel.truncate(this.end);
+          } catch (IOException e) {
+            // E.g. a mapped file cannot be truncated on Windows. The zeros
+            // are dropped when the store is next opened instead.
+            log.debug(e.toString());
+          }
+        }
+
+        this.channel.close();
+      }
+      this.mapped = null;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private boolean append(byte type, String key, byte[] iv, byte[] data) {
+    if (iv.length > 255) {
+      log.error("IV is too long to store: `{}` bytes", iv.length);
+      return false;
+    }
+
+    ByteBuffer record = encodeRecord(type, key.getBytes(StandardCharsets.UTF_8), iv, data);
+
+    this.lock.writeLock().lock();
+    try {
+      if (this.closed) {
+        log.error("Store is closed");
+        return false;
+      }
+
+      if (this.end + record.remaining() > MAXIMUM_FILE_SIZE) {
+        log.error("Store is full: `{}` bytes", this.end);
+        return false;
+      }
+
+      long offset = this.end;
+      int length = record.remaining();
+      this.ensureMapped(offset + length);
+      while (record.hasRemaining()) {
+        this.channel.write(record, offset + record.position());
+      }
+      this.end += length;
+
+      Location previous = (type == PUT) ?
+        this.index.put(key, new Location(offset, length)) :
+        this.index.remove(key);
+
+      if (previous != null) {
+        this.liveBytes -= previous.length;
+      }
+      if (type == PUT) {
+        this.liveBytes += length;
+      }
+
+      return true;
+    } catch (IOException e) {
+      log.error("Could not write record: `{}`", e.getMessage());
+      log.debug(e.toString());
+      return false;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  // Makes the mapping cover at least [0, required). Callers hold the write
+  // lock, so readers always see a mapping that covers [0, end).
+  private void ensureMapped(long required) throws IOException {
+    MappedByteBuffer current = this.mapped;
+
+    if (current == null || current.capacity() < required) {
+      this.mapped = map(this.channel, required, (current == null) ? 0 : current.capacity());
+    }
+  }
+
+  // Compaction only starts once the index has been loaded.
+  private void startCompactor() {
+    if (this.compactionIntervalMillis <= 0) {
+      return;
+    }
+
+    this.compactor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+      Thread thread = new Thread(runnable, "encrypted-kv-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.compactor.scheduleWithFixedDelay(
+      this::compactIfNeeded,
+      this.compactionIntervalMillis,
+      this.compactionIntervalMillis,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  private void compactIfNeeded() {
+    boolean needed;
+
+    this.lock.readLock().lock();
+    try {
+      long garbage = this.end - HEADER_SIZE - this.liveBytes;
+      needed = garbage >= MINIMUM_COMPACTION_GARBAGE && garbage >= this.liveBytes;
+    } finally {
+      this.lock.readLock().unlock();
+    }
+
+    if (needed) {
+      this.compact();
+    }
+  }
+
+  private void load() throws IOException {
+    boolean exists = Files.exists(this.path) && Files.size(this.path) > 0;
+    this.openChannel();
+
+    if (!exists) {
+      this.end = writeHeader(this.channel);
+      this.ensureMapped(this.end);
+      return;
+    }
+
+    long size = this.channel.size();
+    if (size > MAXIMUM_FILE_SIZE) {
+      throw new IOException("Store is larger than 2 GiB");
+    }
+
+    MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    byte[] magic = new byte[MAGIC.length];
+    if (size >= HEADER_SIZE) {
+      buffer.get(magic);
+    }
+    if (size < HEADER_SIZE || !Arrays.equals(MAGIC, magic) || buffer.get() != VERSION) {
+      throw new IOException("File is not an encrypted key value store: " + this.path);
+    }
+
+    int offset = HEADER_SIZE;
+    while (offset + RECORD_OVERHEAD <= size) {
+      int length = buffer.getInt(offset);
+
+      if (length < RECORD_OVERHEAD || offset + (long) length > size ||
+        !checksumMatches(buffer, offset, length))
+      {
+        break;
+      }
+
+      String key = readKey(buffer, offset);
+      Location previous = (buffer.get(offset + 8) == PUT) ?
+        this.index.put(key, new Location(offset, length)) :
+        this.index.remove(key);
+
+      if (previous != null) {
+        this.liveBytes -= previous.length;
+      }
+      if (buffer.get(offset + 8) == PUT) {
+        this.liveBytes += length;
+      }
+
+      offset += length;
+    }
+
+    if (offset < size) {
+      if (!isZeros(buffer, offset, (int) size)) {
+        log.warn("Truncating `{}` bytes of incomplete records from `{}`", size - offset, this.path);
+      }
+      this.channel.truncate(offset);
+    }
+
+    this.end = offset;
+    this.ensureMapped(this.end);
+  }
+
+  private void openChannel() throws IOException {
+    this.channel = FileChannel.open(
+      this.path,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.READ,
+      StandardOpenOption.WRITE
+    );
+  }
+
+  private void closeQuietly() {
+    try {
+      this.close();
+    } catch (IOException e) {
+      log.debug(e.toString());
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel == null) {
+      return;
+    }
+
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.debug(e.toString());
+    }
+  }
+
+  // Maps at least [0, required) of the file, growing by half of the previous
+  // mapping so that appends only occasionally need a new one. The file is
+  // extended with zeros to the mapped size. Old mappings are released by
+  // the garbage collector.
+  private static MappedByteBuffer map(FileChannel channel, long required, long previous)
+    throws IOException
+  {
+    long size = Math.max(required, Math.max(MINIMUM_MAPPING_SIZE, previous + previous / 2));
+    size = Math.min(size, MAXIMUM_FILE_SIZE);
+
+    if (channel.size() < size) {
+      ByteBuffer zero = ByteBuffer.allocate(1);
+      while (zero.hasRemaining()) {
+        channel.write(zero, size - 1);
+      }
+    }
+
+    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+  }
+
+  private static boolean isZeros(ByteBuffer buffer, int offset, int end) {
+    for (int i = offset; i < end; i += 1) {
+      if (buffer.get(i) != 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static long writeHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.put(MAGIC).put(VERSION).flip();
+
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+
+    return HEADER_SIZE;
+  }
+
+  private static ByteBuffer encodeRecord(byte type, byte[] key, byte[] iv, byte[] data) {
+    int length = RECORD_OVERHEAD + key.length + iv.length + data.length;
+    ByteBuffer record = ByteBuffer.allocate(length);
+
+    record.putInt(length).putInt(0).put(type)
+      .putInt(key.length).put(key)
+      .put((byte) iv.length).put(iv)
+      .putInt(data.length).put(data);
+
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), 8, length - 8);
+    record.putInt(4, (int) crc.getValue());
+
+    record.flip();
+    return record;
+  }
+
+  private static boolean checksumMatches(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer body = buffer.duplicate();
+    body.limit(offset + length).position(offset + 8);
+
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return (int) crc.getValue() == buffer.getInt(offset + 4);
+  }
+
+  private static String readKey(ByteBuffer buffer, int offset) {
+    int keyLength = buffer.getInt(offset + 9);
+    byte[] key = new byte[keyLength];
+
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset + 13);
+    duplicate.get(key);
+
+    return new String(key, StandardCharsets.UTF_8);
+  }
+
+  // Copies one record and, when index is not null, records where it went.
+  private static long copyRecord(ByteBuffer source, Location location, FileChannel target,
+                                 long position, String key, Map<String, Location> index)
+    throws IOException
+  {
+    ByteBuffer record = source.duplicate();
+    record.limit((int) (location.offset + location.length)).position((int) location.offset);
+
+    long start = position;
+    while (record.hasRemaining()) {
+      position += target.write(record, position);
+    }
+
+    if (index != null) {
+      index.put(key, new Location(start, location.length));
+    }
+
+    return position;
+  }
+
+  private static class Location {
+    final long offset;
+    final int length;
+
+    Location(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
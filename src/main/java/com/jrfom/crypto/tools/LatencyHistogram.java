@@ -0,0 +1,105 @@
+package com.jrfom.crypto.tools;
+
+/**
+ * A fixed size histogram of nanosecond latencies. Values are grouped into
+ * buckets whose width grows with their magnitude: every power of two range
+ * is split into {@link #SUB_BUCKETS} equal buckets, so reported percentiles
+ * are within about 6% of the true value regardless of scale. Recording is
+ * a few arithmetic operations and never allocates.
+ *
+ * <p>Instances are not thread safe; give each thread its own histogram and
+ * {@link LatencyHistogram#add} them together afterward.</p>
+ *
+ * @since 0.4.0
+ */
+public class LatencyHistogram {
+  static final int SUB_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+  private long count;
+  private long max;
+
+  /**
+   * Record one latency.
+   *
+   * @param nanos The latency in nanoseconds. Negative values are recorded
+   *              as zero.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+
+    this.counts[index(value)] += 1;
+    this.count += 1;
+    this.max = Math.max(this.max, value);
+  }
+
+  /**
+   * Add every value recorded by {@code other} to this histogram.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < this.counts.length; i += 1) {
+      this.counts[i] += other.counts[i];
+    }
+
+    this.count += other.count;
+    this.max = Math.max(this.max, other.max);
+  }
+
+  public long getCount() {
+    return this.count;
+  }
+
+  public long getMax() {
+    return this.max;
+  }
+
+  /**
+   * Get the latency at or below which {@code percentile} percent of the
+   * recorded values fall.
+   *
+   * @param percentile A value from 0 to 100, e.g. 99.9
+   * @return The upper bound, in nanoseconds, of the bucket holding the
+   *         percentile, or zero if nothing has been recorded
+   */
+  public long percentile(double percentile) {
+    if (this.count == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(this.count * percentile / 100.0));
+    long seen = 0;
+
+    for (int i = 0; i < this.counts.length; i += 1) {
+      seen += this.counts[i];
+      if (seen >= target) {
+        return Math.min(upperBound(i), this.max);
+      }
+    }
+
+    return this.max;
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS;
+
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
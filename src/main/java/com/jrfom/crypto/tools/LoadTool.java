@@ -0,0 +1,430 @@
+package com.jrfom.crypto.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jrfom.crypto.AesCryptoTool;
+import com.jrfom.crypto.CipherConstants;
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.HMAC;
+import com.jrfom.crypto.ImmutableCryptoTool;
+import com.jrfom.crypto.KeyToolFactory;
+
+/**
+ * <p>A command line load generator for capacity planning. It repeatedly runs
+ * one operation from several threads for a fixed time and prints the
+ * throughput (operations and megabytes per second) and the p50, p99, and
+ * p99.9 latencies.</p>
+ *
+ * <p>Operations:</p>
+ *
+ * <ul>
+ *   <li>{@code encrypt}: {@link com.jrfom.crypto.CryptoTool#encrypt(byte[])}</li>
+ *   <li>{@code decrypt}: {@link com.jrfom.crypto.CryptoTool#decrypt(EncryptedData)}</li>
+ *   <li>{@code hmac}: {@link com.jrfom.crypto.HMAC#forDataWithKeyAndAlgorithm}</li>
+ *   <li>{@code serialize}: {@link com.jrfom.crypto.EncryptedData#toString()}</li>
+ *   <li>{@code parse}: {@link com.jrfom.crypto.EncryptedData#fromJSON}</li>
+ * </ul>
+ *
+ * <p>Payloads are random bytes of {@code --size} bytes, or the contents of
+ * {@code --file} split into {@code --size} byte chunks. With the default
+ * algorithm, mode, and padding the cipher operations use
+ * {@link com.jrfom.crypto.AesCryptoTool}; any other combination of
+ * {@link com.jrfom.crypto.CipherConstants} values uses an
+ * {@link com.jrfom.crypto.ImmutableCryptoTool}. Run with {@code --help} for
+ * the full list of options.</p>
+ *
+ * <p>Operations that fail, e.g. because the payload size does not suit the
+ * cipher, are counted and reported separately from the throughput and
+ * latencies, and make the tool exit with status 1. Each failure is logged by
+ * the tool that failed, so the run, warm up included, stops once
+ * {@code --max-failures} operations have failed rather than measuring the
+ * cost of logging.</p>
+ *
+ * @since 0.4.0
+ */
+public class LoadTool {
+  static final String USAGE = String.join(
+    System.lineSeparator(),
+    "Usage: java -jar crypto-util-cli.jar [options]",
+    "  --op <name>          encrypt, decrypt, hmac, serialize, or parse (default encrypt)",
+    "  --size <bytes>       payload size (default 1024)",
+    "  --file <path>        read payloads from a file instead of generating them",
+    "  --threads <n>        worker threads (default: available processors)",
+    "  --duration <sec>     measured run time in seconds (default 10)",
+    "  --warmup <sec>       unmeasured warm up time in seconds (default 2)",
+    "  --algorithm <name>   cipher algorithm (default AES)",
+    "  --mode <name>        cipher mode (default CBC)",
+    "  --padding <name>     cipher padding (default PKCS5Padding)",
+    "  --key-bits <n>       cipher key size (default 128)",
+    "  --hmac <name>        HMAC algorithm (default HmacSHA256)",
+    "  --max-failures <n>   stop after n failed operations (default 100)"
+  );
+
+  private String op = "encrypt";
+  private int size = 1024;
+  private String file;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private double duration = 10;
+  private double warmup = 2;
+  private String algorithm = CipherConstants.ALGO_AES;
+  private String mode = CipherConstants.MODE_CBC;
+  private String padding = CipherConstants.PAD_PKCS5;
+  private int keyBits = 128;
+  private String hmacAlgorithm = HMAC.ALGO_SHA256;
+  private int maxFailures = 100;
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  /**
+   * Parse {@code args}, run the load, and print the report.
+   *
+   * @return The process exit code
+   */
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    LoadTool tool = new LoadTool();
+
+    try {
+      if (!tool.parse(args)) {
+        out.println(USAGE);
+        return 0;
+      }
+
+      long failures = tool.execute(out);
+      if (failures > 0) {
+        err.println("Error: " + failures + " operations failed");
+        return 1;
+      }
+
+      return 0;
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      err.println("Error: " + e.getMessage());
+      err.println(USAGE);
+      return 2;
+    } catch (Exception e) {
+      err.println("Error: " + e);
+      return 1;
+    }
+  }
+
+  // Returns false when help was requested.
+  boolean parse(String[] args) {
+    for (int i = 0; i < args.length; i += 1) {
+      String name = args[i];
+
+      if ("--help".equals(name) || "-h".equals(name)) {
+        return false;
+      }
+
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + name);
+      }
+      String value = args[++i];
+
+      switch (name) {
+        case "--op": this.op = value; break;
+        case "--size": this.size = positiveInt(name, value); break;
+        case "--file": this.file = value; break;
+        case "--threads": this.threads = positiveInt(name, value); break;
+        case "--duration": this.duration = Double.parseDouble(value); break;
+        case "--warmup": this.warmup = Double.parseDouble(value); break;
+        case "--algorithm": this.algorithm = value; break;
+        case "--mode": this.mode = value; break;
+        case "--padding": this.padding = value; break;
+        case "--key-bits": this.keyBits = positiveInt(name, value); break;
+        case "--hmac": this.hmacAlgorithm = value; break;
+        case "--max-failures": this.maxFailures = positiveInt(name, value); break;
+        default: throw new IllegalArgumentException("Unknown option " + name);
+      }
+    }
+
+    if (!Arrays.asList("encrypt", "decrypt", "hmac", "serialize", "parse").contains(this.op)) {
+      throw new IllegalArgumentException("Unknown operation " + this.op);
+    }
+
+    return true;
+  }
+
+  // Returns the number of failed operations.
+  long execute(PrintStream out) throws Exception {
+    List<byte[]> payloads = this.payloads();
+    Operation operation = this.operation(payloads);
+
+    out.println(String.format(
+      Locale.ROOT,
+      "op=%s payloads=%d size=%d threads=%d duration=%.1fs warmup=%.1fs",
+      this.op, payloads.size(), payloads.get(0).length, this.threads, this.duration, this.warmup
+    ));
+
+    AtomicLong failures = new AtomicLong();
+    this.load(operation, payloads.size(), this.warmup, failures);
+    List<Worker> workers = this.load(operation, payloads.size(), this.duration, failures);
+
+    LatencyHistogram histogram = new LatencyHistogram();
+    long bytes = 0;
+    long elapsedNanos = 0;
+    for (Worker worker : workers) {
+      histogram.add(worker.histogram);
+      bytes += worker.bytes;
+      elapsedNanos = Math.max(elapsedNanos, worker.elapsedNanos);
+    }
+
+    double seconds = Math.max(elapsedNanos, 1) / 1e9;
+    out.println(String.format(
+      Locale.ROOT,
+      "ops=%d ops/s=%.1f MB/s=%.2f failures=%d",
+      histogram.getCount(),
+      histogram.getCount() / seconds,
+      bytes / seconds / (1024 * 1024),
+      failures.get()
+    ));
+    out.println(String.format(
+      Locale.ROOT,
+      "latency us: p50=%.1f p99=%.1f p999=%.1f max=%.1f",
+      histogram.percentile(50) / 1e3,
+      histogram.percentile(99) / 1e3,
+      histogram.percentile(99.9) / 1e3,
+      histogram.getMax() / 1e3
+    ));
+
+    if (failures.get() >= this.maxFailures) {
+      out.println("Stopped after " + failures.get() + " failed operations");
+    }
+
+    return failures.get();
+  }
+
+  private List<Worker> load(Operation operation, int payloadCount, double seconds,
+                            AtomicLong failures) throws Exception
+  {
+    List<Worker> workers = new ArrayList<>();
+    if (seconds <= 0) {
+      return workers;
+    }
+
+    long durationNanos = (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+
+    try {
+      List<Future<Worker>> futures = new ArrayList<>();
+      for (int i = 0; i < this.threads; i += 1) {
+        Worker worker =
+          new Worker(operation, payloadCount, i, durationNanos, failures, this.maxFailures);
+        futures.add(executor.submit(worker));
+      }
+
+      for (Future<Worker> future : futures) {
+        workers.add(future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return workers;
+  }
+
+  private List<byte[]> payloads() throws IOException {
+    List<byte[]> result = new ArrayList<>();
+
+    if (this.file == null) {
+      byte[] payload = new byte[this.size];
+      new Random().nextBytes(payload);
+      result.add(payload);
+      return result;
+    }
+
+    byte[] contents = Files.readAllBytes(Paths.get(this.file));
+    if (contents.length == 0) {
+      throw new IllegalArgumentException("File is empty: " + this.file);
+    }
+
+    for (int offset = 0; offset < contents.length; offset += this.size) {
+      result.add(Arrays.copyOfRange(contents, offset, Math.min(contents.length, offset + this.size)));
+    }
+
+    return result;
+  }
+
+  private Operation operation(List<byte[]> payloads) {
+    switch (this.op) {
+      case "hmac": {
+        Key key = this.key(this.hmacAlgorithm, 256);
+        if (!HMAC.forDataWithKeyAndAlgorithm(payloads.get(0), key, this.hmacAlgorithm).isPresent()) {
+          throw new IllegalArgumentException("HMAC algorithm is not available: " + this.hmacAlgorithm);
+        }
+
+        return (index) -> {
+          byte[] payload = payloads.get(index);
+          return HMAC.forDataWithKeyAndAlgorithm(payload, key, this.hmacAlgorithm).isPresent() ?
+            payload.length : Operation.FAILED;
+        };
+      }
+
+      case "encrypt": {
+        CryptoTool tool = this.cryptoTool();
+        return (index) -> {
+          byte[] payload = payloads.get(index);
+          return tool.encrypt(payload).isPresent() ? payload.length : Operation.FAILED;
+        };
+      }
+
+      case "decrypt": {
+        CryptoTool tool = this.cryptoTool();
+        List<EncryptedData> encrypted = new ArrayList<>();
+        for (byte[] payload : payloads) {
+          encrypted.add(this.encrypt(tool, payload));
+        }
+
+        return (index) -> {
+          Optional<byte[]> plainText = tool.decrypt(encrypted.get(index));
+          return plainText.isPresent() ? plainText.get().length : Operation.FAILED;
+        };
+      }
+
+      case "serialize": {
+        CryptoTool tool = this.cryptoTool();
+        List<EncryptedData> encrypted = new ArrayList<>();
+        for (byte[] payload : payloads) {
+          encrypted.add(this.encrypt(tool, payload));
+        }
+
+        return (index) -> encrypted.get(index).toString().length();
+      }
+
+      default: {
+        CryptoTool tool = this.cryptoTool();
+        List<String> json = new ArrayList<>();
+        for (byte[] payload : payloads) {
+          json.add(this.encrypt(tool, payload).toString());
+        }
+
+        return (index) -> {
+          String value = json.get(index);
+          return EncryptedData.fromJSON(value).isPresent() ? value.length() : Operation.FAILED;
+        };
+      }
+    }
+  }
+
+  private CryptoTool cryptoTool() {
+    Key key = this.key(this.algorithm, this.keyBits);
+
+    boolean defaults = CipherConstants.ALGO_AES.equals(this.algorithm) &&
+      CipherConstants.MODE_CBC.equals(this.mode) &&
+      CipherConstants.PAD_PKCS5.equals(this.padding);
+    if (defaults) {
+      return new AesCryptoTool(key);
+    }
+
+    return ImmutableCryptoTool.builder()
+      .algorithm(this.algorithm)
+      .mode(this.mode)
+      .padding(this.padding)
+      .key(key)
+      .build();
+  }
+
+  private Key key(String algorithm, int bits) {
+    Optional<Key> key = KeyToolFactory.getInstance().keyForAlgorithmAtBits(algorithm, bits);
+    if (!key.isPresent()) {
+      throw new IllegalArgumentException("Could not generate a key for " + algorithm);
+    }
+
+    return key.get();
+  }
+
+  private EncryptedData encrypt(CryptoTool tool, byte[] payload) {
+    Optional<EncryptedData> data = tool.encrypt(payload);
+    if (!data.isPresent()) {
+      throw new IllegalStateException("Could not encrypt a payload with " + this.algorithm);
+    }
+
+    return data.get();
+  }
+
+  private static int positiveInt(String name, String value) {
+    int result = Integer.parseInt(value);
+    if (result <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+
+    return result;
+  }
+
+  @FunctionalInterface
+  private interface Operation {
+    int FAILED = -1;
+
+    // Performs the operation on one payload and returns the bytes processed,
+    // or FAILED.
+    int apply(int index);
+  }
+
+  private static class Worker implements Callable<Worker> {
+    final Operation operation;
+    final int payloadCount;
+    final int start;
+    final long durationNanos;
+    final AtomicLong failures;
+    final long maxFailures;
+    final LatencyHistogram histogram = new LatencyHistogram();
+    long bytes;
+    long elapsedNanos;
+
+    Worker(Operation operation, int payloadCount, int start, long durationNanos,
+           AtomicLong failures, long maxFailures)
+    {
+      this.operation = operation;
+      this.payloadCount = payloadCount;
+      this.start = start;
+      this.durationNanos = durationNanos;
+      this.failures = failures;
+      this.maxFailures = maxFailures;
+    }
+
+    @Override
+    public Worker call() {
+      long begin = System.nanoTime();
+      long deadline = begin + this.durationNanos;
+      int index = this.start % this.payloadCount;
+      long now = begin;
+
+      while (now < deadline && this.failures.get() < this.maxFailures) {
+        int length = this.operation.apply(index);
+        long finished = System.nanoTime();
+
+        // Failures are neither operations nor latencies; they are only
+        // counted.
+        if (length == Operation.FAILED) {
+          this.failures.incrementAndGet();
+        } else {
+          this.histogram.record(finished - now);
+          this.bytes += length;
+        }
+        now = finished;
+        index = (index + 1 == this.payloadCount) ? 0 : index + 1;
+      }
+
+      this.elapsedNanos = now - begin;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.jrfom.crypto.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder events behind
+ * {@link com.jrfom.crypto.jfr.CryptoEvents}. This is the only class that
+ * refers to {@code jdk.jfr}, and it is compiled separately for Java 11; it
+ * is loaded by name only once that module is known to be present. The
+ * events are disabled by default, since crypto operations can be frequent
+ * enough to flood a general purpose recording.
+ */
+final class JfrEvents implements TraceFactory {
+  private final EventType cipherType;
+  private final EventType hmacType;
+  private final EventType keyGenerationType;
+  private final EventType jsonType;
+
+  JfrEvents() {
+    this.cipherType = EventType.getEventType(CipherEvent.class);
+    this.hmacType = EventType.getEventType(HmacEvent.class);
+    this.keyGenerationType = EventType.getEventType(KeyGenerationEvent.class);
+    this.jsonType = EventType.getEventType(JsonEvent.class);
+  }
+
+  @Override
+  public CryptoTrace cipher(String operation, String transformation) {
+    return this.cipherType.isEnabled() ?
+      new Trace(new CipherEvent(), operation, transformation) :
+      CryptoTrace.NOOP;
+  }
+
+  @Override
+  public CryptoTrace hmac(String algorithm) {
+    return this.hmacType.isEnabled() ?
+      new Trace(new HmacEvent(), "hmac", algorithm) :
+      CryptoTrace.NOOP;
+  }
+
+  @Override
+  public CryptoTrace keyGeneration(String algorithm) {
+    return this.keyGenerationType.isEnabled() ?
+      new Trace(new KeyGenerationEvent(), "generate", algorithm) :
+      CryptoTrace.NOOP;
+  }
+
+  @Override
+  public CryptoTrace json(String operation) {
+    return this.jsonType.isEnabled() ?
+      new Trace(new JsonEvent(), operation, "JSON") :
+      CryptoTrace.NOOP;
+  }
+
+  private static final class Trace implements CryptoTrace {
+    private final CryptoEvent event;
+    private long mark;
+
+    Trace(CryptoEvent event, String operation, String algorithm) {
+      this.event = event;
+      this.event.operation = operation;
+      this.event.algorithm = algorithm;
+      this.event.begin();
+      this.mark = System.nanoTime();
+    }
+
+    @Override
+    public void phase(Phase phase) {
+      long now = System.nanoTime();
+      long elapsed = now - this.mark;
+      this.mark = now;
+
+      switch (phase) {
+        case RANDOM:
+          this.event.randomDuration += elapsed;
+          break;
+        case SETUP:
+          this.event.setupDuration += elapsed;
+          break;
+        default:
+          this.event.operationDuration += elapsed;
+      }
+    }
+
+    @Override
+    public void end(long payloadSize, boolean success) {
+      this.phase(Phase.OPERATION);
+      this.event.end();
+
+      if (this.event.shouldCommit()) {
+        this.event.payloadSize = payloadSize;
+        this.event.success = success;
+        this.event.commit();
+      }
+    }
+  }
+
+  @Category({"Crypto Util"})
+  @Enabled(false)
+  abstract static class CryptoEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Payload Size")
+    @Description("Bytes processed, or key size in bits for key generation")
+    long payloadSize;
+
+    @Label("Random Duration")
+    @Description("Time spent generating random bytes")
+    @Timespan(Timespan.NANOSECONDS)
+    long randomDuration;
+
+    @Label("Setup Duration")
+    @Description("Time spent getting and initializing the primitive")
+    @Timespan(Timespan.NANOSECONDS)
+    long setupDuration;
+
+    @Label("Operation Duration")
+    @Description("Time spent doing the work")
+    @Timespan(Timespan.NANOSECONDS)
+    long operationDuration;
+
+    @Label("Success")
+    boolean success;
+  }
+
+  @Name("com.jrfom.crypto.Cipher")
+  @Label("Cipher Operation")
+  static final class CipherEvent extends CryptoEvent {}
+
+  @Name("com.jrfom.crypto.Hmac")
+  @Label("HMAC Operation")
+  static final class HmacEvent extends CryptoEvent {}
+
+  @Name("com.jrfom.crypto.KeyGeneration")
+  @Label("Key Generation")
+  static final class KeyGenerationEvent extends CryptoEvent {}
+
+  @Name("com.jrfom.crypto.Json")
+  @Label("EncryptedData JSON")
+  static final class JsonEvent extends CryptoEvent {}
+}
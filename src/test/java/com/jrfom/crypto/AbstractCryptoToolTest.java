@@ -1,7 +1,13 @@
 package com.jrfom.crypto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
 
 import javax.crypto.spec.SecretKeySpec;
@@ -9,6 +15,7 @@ import javax.crypto.spec.SecretKeySpec;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class AbstractCryptoToolTest {
@@ -88,4 +95,136 @@ public class AbstractCryptoToolTest {
       assertEquals("foobar", new String(data))
     );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDecryptView() throws Exception {
+    AbstractCryptoTool tool =
+      new AbstractCryptoTool("AES", "AES/CBC/PKCS5Padding", 16);
+    tool.setKey(this.key);
+
+    byte[] iv = Base64.getDecoder().decode("VSadcPgqXYoegXchXrej2Q==");
+    byte[] data = Base64.getDecoder().decode("66qbexIcG0VlGHw5E2JHcA==");
+    byte[] record = this.encryptedRecord("barfoo", tool);
+
+    // Two concatenated records, each laid out as [iv][data].
+    ByteBuffer buffer = ByteBuffer.allocate(iv.length + data.length + record.length);
+    buffer.put(iv).put(data).put(record);
+
+    Optional<byte[]> first = tool.decrypt(
+      new EncryptedDataView(buffer.array(), 0, 16, 16, data.length)
+    );
+    assertTrue(first.isPresent());
+    assertEquals("foobar", new String(first.get()));
+
+    int offset = iv.length + data.length;
+    Optional<byte[]> second = tool.decrypt(new EncryptedDataView(
+      buffer.array(), offset, 16, offset + 16, record.length - 16
+    ));
+    assertTrue(second.isPresent());
+    assertEquals("barfoo", new String(second.get()));
+  }
+
+  @Test
+  public void testDecryptDirectViewIntoBuffer() throws Exception {
+    AbstractCryptoTool tool =
+      new AbstractCryptoTool("AES", "AES/CBC/PKCS5Padding", 16);
+    tool.setKey(this.key);
+
+    byte[] record = this.encryptedRecord("foobar", tool);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(record.length + 4);
+    buffer.position(4);
+    buffer.put(record);
+
+    ByteBuffer output = ByteBuffer.allocate(record.length);
+    Optional<Integer> lengthOptional = tool.decrypt(
+      new EncryptedDataView(buffer, 4, 16, 20, record.length - 16),
+      output
+    );
+
+    assertTrue(lengthOptional.isPresent());
+    assertEquals(6, lengthOptional.get().intValue());
+    assertEquals("foobar", new String(output.array(), 0, 6));
+  }
+
+  @Test
+  public void testEncryptDecryptWithBufferPool() throws Exception {
+    AbstractCryptoTool tool =
+      new AbstractCryptoTool("AES", "AES/CBC/PKCS5Padding", 16);
+    tool.setKey(this.key);
+    DirectBufferPool pool = new DirectBufferPool();
+
+    ByteBuffer plainText = ByteBuffer.allocateDirect(1024 * 1024 + 3);
+    for (int i = 0; i < plainText.capacity(); i += 1) {
+      plainText.put(i, (byte) i);
+    }
+
+    Optional<EncryptedDataView> viewOptional = tool.encrypt(plainText, pool);
+    assertTrue(viewOptional.isPresent());
+    EncryptedDataView view = viewOptional.get();
+
+    // Interoperates with the byte[] based API.
+    Optional<byte[]> copyOptional = tool.decrypt(view.toEncryptedData());
+    assertTrue(copyOptional.isPresent());
+    assertEquals(plainText.capacity(), copyOptional.get().length);
+
+    Optional<ByteBuffer> decryptedOptional = tool.decrypt(view, pool);
+    assertTrue(decryptedOptional.isPresent());
+    ByteBuffer decrypted = decryptedOptional.get();
+
+    plainText.clear();
+    assertEquals(plainText, decrypted);
+
+    pool.release(view.getBuffer());
+    pool.release(decrypted);
+  }
+
+  @Test
+  public void testEncryptDecryptObjectStream() throws Exception {
+    AbstractCryptoTool tool =
+      new AbstractCryptoTool("AES", "AES/CBC/PKCS5Padding", 16);
+    tool.setKey(this.key);
+
+    Payload payload = new Payload();
+    payload.name = "foobar";
+    for (int i = 0; i < 100_000; i += 1) {
+      payload.values.add(i);
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertTrue(tool.encryptObject(payload, output));
+    byte[] encrypted = output.toByteArray();
+
+    assertEquals(AlgorithmId.AES_CBC_PKCS5.getId(), encrypted[0]);
+    assertEquals(16, encrypted[1]);
+    assertFalse(new String(encrypted).contains("foobar"));
+
+    Optional<Payload> decrypted =
+      tool.decryptObject(new ByteArrayInputStream(encrypted), Payload.class);
+    assertTrue(decrypted.isPresent());
+    assertEquals("foobar", decrypted.get().name);
+    assertEquals(payload.values, decrypted.get().values);
+
+    // A stream written by another transformation is rejected up front.
+    encrypted[0] = (byte) AlgorithmId.AES_GCM_NOPAD.getId();
+    assertFalse(tool.decryptObject(new ByteArrayInputStream(encrypted), Payload.class).isPresent());
+
+    // A truncated stream fails its padding check.
+    encrypted[0] = (byte) AlgorithmId.AES_CBC_PKCS5.getId();
+    byte[] truncated = Arrays.copyOf(encrypted, encrypted.length - 16);
+    assertFalse(tool.decryptObject(new ByteArrayInputStream(truncated), Payload.class).isPresent());
+  }
+
+  private byte[] encryptedRecord(String plainText, AbstractCryptoTool tool) {
+    EncryptedData encryptedData = tool.encrypt(plainText.getBytes()).get();
+    return ByteBuffer
+      .allocate(encryptedData.getIv().length + encryptedData.getData().length)
+      .put(encryptedData.getIv())
+      .put(encryptedData.getData())
+      .array();
+  }
+
+  public static class Payload {
+    public String name;
+    public List<Integer> values = new ArrayList<>();
+  }
+}
@@ -1,6 +1,7 @@
 package com.jrfom.crypto;
 
 import java.security.Key;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Optional;
 
@@ -8,6 +9,7 @@ import javax.crypto.spec.SecretKeySpec;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -62,4 +64,36 @@ public class AesCryptoToolTest {
       assertEquals("foobar", new String(data))
     );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testDecryptRange() throws Exception {
+    AesCryptoTool tool =
+      new AesCryptoTool(this.key);
+
+    byte[] plainText = new byte[1000];
+    for (int i = 0; i < plainText.length; i += 1) {
+      plainText[i] = (byte) (i * 31);
+    }
+
+    Optional<EncryptedData> encryptedDataOptional = tool.encrypt(plainText);
+    assertTrue(encryptedDataOptional.isPresent());
+    EncryptedData encryptedData = encryptedDataOptional.get();
+
+    int[][] ranges = {{0, 5}, {3, 40}, {16, 16}, {500, 123}, {990, 10}, {995, 100}};
+    for (int[] range : ranges) {
+      Optional<byte[]> rangeOptional =
+        tool.decryptRange(encryptedData, range[0], range[1]);
+      assertTrue(rangeOptional.isPresent());
+
+      int end = Math.min(plainText.length, range[0] + range[1]);
+      assertArrayEquals(
+        Arrays.copyOfRange(plainText, range[0], end),
+        rangeOptional.get()
+      );
+    }
+
+    Optional<byte[]> pastEnd = tool.decryptRange(encryptedData, 1005, 4);
+    assertTrue(pastEnd.isPresent());
+    assertEquals(0, pastEnd.get().length);
+  }
+}
@@ -0,0 +1,70 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ByteArrayPoolTest {
+
+  @Test
+  public void testAcquireUsesSizeClasses() throws Exception {
+    ByteArrayPool pool = new ByteArrayPool();
+
+    assertEquals(16, pool.acquire(1).length);
+    assertEquals(16, pool.acquire(16).length);
+    assertEquals(64, pool.acquire(33).length);
+    assertTrue(pool.isExactSize(16));
+    assertTrue(!pool.isExactSize(48));
+  }
+
+  @Test
+  public void testReleasedArraysAreZeroedAndReused() throws Exception {
+    ByteArrayPool pool = new ByteArrayPool();
+
+    byte[] array = pool.acquire(32);
+    array[0] = 42;
+    pool.release(array);
+
+    byte[] reused = pool.acquire(32);
+    assertSame(array, reused);
+    assertEquals(0, reused[0]);
+  }
+
+  @Test
+  public void testEncryptDrawsIvFromPool() throws Exception {
+    Key key = new SecretKeySpec(
+      Base64.getDecoder().decode("uCntWeIpo4kgDAaGDUQo2w=="),
+      "AES"
+    );
+    ByteArrayPool pool = new ByteArrayPool();
+    AesCryptoTool tool = new AesCryptoTool(key);
+    tool.setByteArrayPool(pool);
+
+    EncryptedData first = tool.encrypt("foobar".getBytes()).get();
+    byte[] iv = first.getIv();
+    assertEquals("foobar", new String(tool.decrypt(first).get()));
+
+    byte[] ivCopy = iv.clone();
+    byte[] data = first.getData();
+    first.release(pool);
+    assertNull(first.getIv());
+
+    // Only the IV is pooled; the ciphertext is left alone.
+    assertSame(data, first.getData());
+    assertEquals("foobar", new String(tool.decrypt(new EncryptedData(ivCopy, data)).get()));
+
+    Optional<EncryptedData> second = tool.encrypt("barfoo".getBytes());
+    assertTrue(second.isPresent());
+    assertSame(iv, second.get().getIv());
+    assertEquals("barfoo", new String(tool.decrypt(second.get()).get()));
+  }
+}
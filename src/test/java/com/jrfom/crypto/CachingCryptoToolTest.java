@@ -0,0 +1,99 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CachingCryptoToolTest {
+
+  private final Key key;
+
+  public CachingCryptoToolTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @Test
+  public void testDecryptHitsCache() throws Exception {
+    CachingCryptoTool tool =
+      new CachingCryptoTool(new AesCryptoTool(this.key), 1024 * 1024);
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+
+    for (int i = 0; i < 3; i += 1) {
+      Optional<byte[]> decryptedOptional = tool.decrypt(encryptedData);
+      assertTrue(decryptedOptional.isPresent());
+      assertEquals("foobar", new String(decryptedOptional.get()));
+
+      // Modifying a returned array must not affect the cached value.
+      decryptedOptional.get()[0] = 0;
+    }
+
+    assertEquals(1, tool.getMissCount());
+    assertEquals(2, tool.getHitCount());
+    assertEquals(1, tool.size());
+  }
+
+  @Test
+  public void testTagIsPartOfKey() throws Exception {
+    CachingCryptoTool tool =
+      new CachingCryptoTool(new AesCryptoTool(this.key), 1024 * 1024);
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+    tool.decrypt(encryptedData);
+
+    EncryptedData retagged = new EncryptedData(
+      encryptedData.getIv(),
+      encryptedData.getData(),
+      AlgorithmId.AES_CTR_NOPAD
+    );
+    tool.decrypt(retagged);
+
+    assertEquals(2, tool.getMissCount());
+    assertEquals(0, tool.getHitCount());
+  }
+
+  @Test
+  public void testEvictsByWeight() throws Exception {
+    CachingCryptoTool tool = new CachingCryptoTool(new AesCryptoTool(this.key), 300);
+    EncryptedData first = tool.encrypt("first".getBytes()).get();
+    EncryptedData second = tool.encrypt("second".getBytes()).get();
+    EncryptedData third = tool.encrypt("third".getBytes()).get();
+
+    tool.decrypt(first);
+    tool.decrypt(second);
+    tool.decrypt(first);
+    tool.decrypt(third);
+
+    assertEquals(2, tool.size());
+    assertEquals(1, tool.getEvictionCount());
+    assertTrue(tool.weight() <= 300);
+
+    // "second" was least recently used, so it was evicted.
+    tool.decrypt(first);
+    assertEquals(2, tool.getHitCount());
+    tool.decrypt(second);
+    assertEquals(4, tool.getMissCount());
+  }
+
+  @Test
+  public void testEntriesExpire() throws Exception {
+    CachingCryptoTool tool =
+      new CachingCryptoTool(new AesCryptoTool(this.key), 1024 * 1024, 1, true);
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+
+    tool.decrypt(encryptedData);
+    Thread.sleep(5);
+    Optional<byte[]> decryptedOptional = tool.decrypt(encryptedData);
+
+    assertTrue(decryptedOptional.isPresent());
+    assertEquals("foobar", new String(decryptedOptional.get()));
+    assertEquals(2, tool.getMissCount());
+    assertEquals(0, tool.getHitCount());
+  }
+}
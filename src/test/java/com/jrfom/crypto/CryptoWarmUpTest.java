@@ -0,0 +1,64 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.security.Provider;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CryptoWarmUpTest {
+
+  private final Key key;
+
+  public CryptoWarmUpTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @After
+  public void tearDown() {
+    CryptoProviders.clear();
+  }
+
+  @Test
+  public void testWarmUpPinsProvider() throws Exception {
+    AesCryptoTool tool = new AesCryptoTool(this.key);
+
+    assertTrue(CryptoWarmUp.warmUp(tool, 100));
+    assertTrue(CryptoProviders.getCipherProvider(CipherConstants.AesCbcPad5()).isPresent());
+  }
+
+  @Test
+  public void testWarmUpHmac() throws Exception {
+    assertTrue(CryptoWarmUp.warmUpHmac(HMAC.ALGO_SHA256, 100));
+    assertTrue(CryptoProviders.getMacProvider(HMAC.ALGO_SHA256).isPresent());
+  }
+
+  @Test
+  public void testPinFastestCipherProvider() throws Exception {
+    Optional<Provider> providerOptional = CryptoWarmUp.pinFastestCipherProvider(
+      CipherConstants.AesCbcPad5(),
+      this.key,
+      256,
+      10
+    );
+    assertTrue(providerOptional.isPresent());
+    assertEquals(
+      providerOptional,
+      CryptoProviders.getCipherProvider(CipherConstants.AesCbcPad5())
+    );
+
+    AesCryptoTool tool = new AesCryptoTool(this.key);
+    Optional<byte[]> decrypted =
+      tool.encrypt("foobar".getBytes()).flatMap(tool::decrypt);
+    assertTrue(decrypted.isPresent());
+    assertEquals("foobar", new String(decrypted.get()));
+  }
+}
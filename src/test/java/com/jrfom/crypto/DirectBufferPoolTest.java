@@ -0,0 +1,55 @@
+package com.jrfom.crypto;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectBufferPoolTest {
+
+  @Test
+  public void testAcquireUsesSizeClasses() throws Exception {
+    DirectBufferPool pool = new DirectBufferPool();
+
+    ByteBuffer small = pool.acquire(10);
+    assertTrue(small.isDirect());
+    assertEquals(DirectBufferPool.MINIMUM_BUFFER_SIZE, small.capacity());
+    assertEquals(10, small.limit());
+
+    ByteBuffer large = pool.acquire(5000);
+    assertEquals(8192, large.capacity());
+    assertEquals(5000, large.limit());
+  }
+
+  @Test
+  public void testReleasedBuffersAreZeroedAndReused() throws Exception {
+    DirectBufferPool pool = new DirectBufferPool();
+
+    ByteBuffer buffer = pool.acquire(100);
+    buffer.put("secret".getBytes());
+    pool.release(buffer);
+
+    ByteBuffer reused = pool.acquire(200);
+    assertSame(buffer, reused);
+    assertEquals(0, reused.position());
+    assertEquals(200, reused.limit());
+    for (int i = 0; i < reused.limit(); i += 1) {
+      assertEquals(0, reused.get(i));
+    }
+  }
+
+  @Test
+  public void testOversizedBuffersAreNotRetained() throws Exception {
+    DirectBufferPool pool = new DirectBufferPool(8192, 1, false);
+
+    ByteBuffer buffer = pool.acquire(10000);
+    assertEquals(10000, buffer.capacity());
+    pool.release(buffer);
+
+    assertNotSame(buffer, pool.acquire(10000));
+  }
+}
@@ -0,0 +1,126 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class DispatchingCryptoToolTest {
+
+  private final Key key;
+
+  public DispatchingCryptoToolTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @Test
+  public void testDecryptsMixedFormats() throws Exception {
+    KeyTool keyTool = new KeyTool();
+    Key legacyKey = keyTool.aes128key().get();
+    Key ctrKey = keyTool.aes128key().get();
+
+    DispatchingCryptoTool dispatcher = new DispatchingCryptoTool(this.key, AlgorithmId.AES_GCM_NOPAD);
+    dispatcher.register(AlgorithmId.AES_CBC_PKCS5, new AesCryptoTool(legacyKey));
+    dispatcher.register(
+      AlgorithmId.AES_CTR_NOPAD,
+      new DispatchingCryptoTool(ctrKey, AlgorithmId.AES_CTR_NOPAD).getTool(AlgorithmId.AES_CTR_NOPAD).get()
+    );
+    dispatcher.register(AlgorithmId.AES_SIV, new SivCryptoTool(new SecretKeySpec(new byte[32], "AES")));
+
+    // Written before tags existed.
+    EncryptedData legacy = new AesCryptoTool(legacyKey).encrypt("cbc".getBytes()).get();
+    legacy.setAlgorithmId(null);
+
+    EncryptedData ctr = new DispatchingCryptoTool(ctrKey, AlgorithmId.AES_CTR_NOPAD)
+      .encrypt("ctr".getBytes()).get();
+    EncryptedData gcm = dispatcher.encrypt("gcm".getBytes()).get();
+    EncryptedData siv = dispatcher.getTool(AlgorithmId.AES_SIV).get()
+      .encrypt("siv".getBytes()).get();
+
+    assertEquals(AlgorithmId.AES_CTR_NOPAD, ctr.getAlgorithmId());
+    assertEquals(AlgorithmId.AES_GCM_NOPAD, gcm.getAlgorithmId());
+    assertEquals(AlgorithmId.AES_SIV, siv.getAlgorithmId());
+
+    for (EncryptedData data : new EncryptedData[] {legacy, ctr, gcm, siv}) {
+      EncryptedData parsed = EncryptedData.fromJSON(data.toString()).get();
+      assertEquals(data.getAlgorithmId(), parsed.getAlgorithmId());
+      assertEquals(
+        data.getAlgorithmId() == null ? "cbc" : data.getAlgorithmId().getMode().toLowerCase(),
+        new String(dispatcher.decrypt(parsed).get())
+      );
+    }
+  }
+
+  @Test
+  public void testCreatesEachToolOnce() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    DispatchingCryptoTool dispatcher = new DispatchingCryptoTool(
+      AlgorithmId.AES_CBC_PKCS5,
+      (algorithmId) -> {
+        created.incrementAndGet();
+        return (algorithmId == AlgorithmId.AES_CBC_PKCS5) ? new AesCryptoTool(this.key) : null;
+      }
+    );
+
+    for (int i = 0; i < 10; i += 1) {
+      EncryptedData data = dispatcher.encrypt("foobar".getBytes()).get();
+      assertEquals("foobar", new String(dispatcher.decrypt(data).get()));
+    }
+    assertEquals(1, created.get());
+
+    EncryptedData mistagged = dispatcher.encrypt("foobar".getBytes()).get();
+    mistagged.setAlgorithmId(AlgorithmId.AES_CTR_NOPAD);
+    assertFalse(dispatcher.decrypt(mistagged).isPresent());
+  }
+
+  @Test
+  public void testRetaggedDataIsRejected() throws Exception {
+    DispatchingCryptoTool dispatcher = new DispatchingCryptoTool(this.key, AlgorithmId.AES_GCM_NOPAD);
+    assertEquals(EnumSet.of(AlgorithmId.AES_GCM_NOPAD), dispatcher.getAccepted());
+
+    EncryptedData gcm = dispatcher.encrypt("attack at dawn".getBytes()).get();
+    byte[] data = gcm.getData();
+    data[0] ^= 1;
+
+    // Decrypting GCM ciphertext as CTR under the same key would skip the
+    // tag check and return the attacker's modified plaintext.
+    gcm.setAlgorithmId(AlgorithmId.AES_CTR_NOPAD);
+    assertFalse(dispatcher.decrypt(gcm).isPresent());
+
+    gcm.setAlgorithmId(null);
+    assertFalse(dispatcher.decrypt(gcm).isPresent());
+
+    // Accepting the identifier does not derive a CTR tool from the key.
+    dispatcher.setAccepted(EnumSet.of(AlgorithmId.AES_GCM_NOPAD, AlgorithmId.AES_CTR_NOPAD));
+    gcm.setAlgorithmId(AlgorithmId.AES_CTR_NOPAD);
+    assertFalse(dispatcher.decrypt(gcm).isPresent());
+
+    gcm.setAlgorithmId(AlgorithmId.AES_GCM_NOPAD);
+    assertFalse(dispatcher.decrypt(gcm).isPresent());
+    data[0] ^= 1;
+    assertEquals("attack at dawn", new String(dispatcher.decrypt(gcm).get()));
+  }
+
+  @Test
+  public void testUnknownTagIsRejected() throws Exception {
+    assertFalse(AlgorithmId.fromId(200).isPresent());
+    assertEquals(AlgorithmId.AES_CBC_PKCS5, AlgorithmId.fromTransformation("aes/cbc/pkcs5padding").get());
+
+    assertFalse(EncryptedData.fromJSON(
+      "{\"iv\":\"VSadcPgqXYoegXchXrej2Q==\",\"data\":\"66qbexIcG0VlGHw5E2JHcA==\",\"alg\":200}"
+    ).isPresent());
+
+    assertNull(EncryptedData.fromJSON(
+      "{\"iv\":\"VSadcPgqXYoegXchXrej2Q==\",\"data\":\"66qbexIcG0VlGHw5E2JHcA==\"}"
+    ).get().getAlgorithmId());
+  }
+}
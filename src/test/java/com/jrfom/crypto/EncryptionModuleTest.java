@@ -0,0 +1,80 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.Base64;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EncryptionModuleTest {
+
+  private final ObjectMapper mapper;
+
+  public EncryptionModuleTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    Key key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+
+    this.mapper = new ObjectMapper();
+    this.mapper.registerModule(new EncryptionModule(new AesCryptoTool(key)));
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Person person = new Person();
+    person.name = "Jane";
+    person.ssn = "123-45-6789";
+    person.address = new Address();
+    person.address.street = "1 Main St";
+    person.age = 42;
+
+    String json = this.mapper.writeValueAsString(person);
+    assertFalse(json.contains("123-45-6789"));
+    assertFalse(json.contains("Main St"));
+
+    JsonNode tree = this.mapper.readTree(json);
+    assertEquals("Jane", tree.get("name").asText());
+    assertTrue(tree.get("ssn").has("iv"));
+    assertTrue(tree.get("ssn").has("data"));
+    assertTrue(tree.get("age").isObject());
+
+    Person decoded = this.mapper.readValue(json, Person.class);
+    assertEquals("Jane", decoded.name);
+    assertEquals("123-45-6789", decoded.ssn);
+    assertEquals("1 Main St", decoded.address.street);
+    assertEquals(42, decoded.age);
+  }
+
+  @Test
+  public void testNullValuesAreNotEncrypted() throws Exception {
+    Person person = new Person();
+    person.name = "Jane";
+
+    String json = this.mapper.writeValueAsString(person);
+    assertTrue(this.mapper.readTree(json).get("ssn").isNull());
+
+    Person decoded = this.mapper.readValue(json, Person.class);
+    assertNull(decoded.ssn);
+  }
+
+  public static class Person {
+    public String name;
+    @Encrypted
+    public String ssn;
+    @Encrypted
+    public Address address;
+    @Encrypted
+    public int age;
+  }
+
+  public static class Address {
+    public String street;
+  }
+}
@@ -0,0 +1,128 @@
+package com.jrfom.crypto;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HybridCryptoToolTest {
+
+  private static KeyPair keyPair;
+
+  @BeforeClass
+  public static void generateKeyPair() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance(CipherConstants.ALGO_RSA);
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  @Test
+  public void testEncryptDecrypt() throws Exception {
+    HybridCryptoTool sender = new HybridCryptoTool(keyPair.getPublic(), null);
+    HybridCryptoTool receiver = new HybridCryptoTool(null, keyPair.getPrivate());
+
+    Optional<HybridEncryptedData> encryptedOptional = sender.encrypt("foobar".getBytes());
+    assertTrue(encryptedOptional.isPresent());
+
+    HybridEncryptedData encrypted =
+      HybridEncryptedData.fromJSON(encryptedOptional.get().toString()).get();
+    assertTrue(encryptedOptional.get().toString().startsWith("{\"key\":"));
+
+    Optional<byte[]> decryptedOptional = receiver.decrypt(encrypted);
+    assertTrue(decryptedOptional.isPresent());
+    assertEquals("foobar", new String(decryptedOptional.get()));
+
+    assertFalse(sender.decrypt(encrypted).isPresent());
+  }
+
+  @Test
+  public void testSessionKeyIsReused() throws Exception {
+    HybridCryptoTool tool = new HybridCryptoTool(keyPair.getPublic(), keyPair.getPrivate());
+
+    HybridEncryptedData first = tool.encrypt("first".getBytes()).get();
+    HybridEncryptedData second = tool.encrypt("second".getBytes()).get();
+    assertArrayEquals(first.getWrappedKey(), second.getWrappedKey());
+    assertFalse(Arrays.equals(first.getIv(), second.getIv()));
+
+    assertEquals("first", new String(tool.decrypt(first).get()));
+    assertEquals("second", new String(tool.decrypt(second).get()));
+
+    assertEquals(1, tool.getWrapCount());
+    assertEquals(1, tool.getUnwrapCount());
+  }
+
+  @Test
+  public void testSessionRotatesAfterMessageLimit() throws Exception {
+    HybridCryptoTool tool =
+      new HybridCryptoTool(keyPair.getPublic(), keyPair.getPrivate(), 0, 2, 16);
+
+    HybridEncryptedData first = tool.encrypt("first".getBytes()).get();
+    HybridEncryptedData second = tool.encrypt("second".getBytes()).get();
+    HybridEncryptedData third = tool.encrypt("third".getBytes()).get();
+
+    assertArrayEquals(first.getWrappedKey(), second.getWrappedKey());
+    assertFalse(Arrays.equals(second.getWrappedKey(), third.getWrappedKey()));
+    assertEquals(2, tool.getWrapCount());
+
+    assertEquals("first", new String(tool.decrypt(first).get()));
+    assertEquals("third", new String(tool.decrypt(third).get()));
+    assertEquals(2, tool.getUnwrapCount());
+  }
+
+  @Test
+  public void testTamperingIsDetected() throws Exception {
+    HybridCryptoTool sender = new HybridCryptoTool(keyPair.getPublic(), null);
+    HybridCryptoTool receiver = new HybridCryptoTool(null, keyPair.getPrivate());
+
+    HybridEncryptedData message = sender.encrypt("foobar".getBytes()).get();
+    byte[] data = message.getData().clone();
+    data[0] ^= 1;
+    HybridEncryptedData tampered =
+      new HybridEncryptedData(message.getWrappedKey(), message.getIv(), data);
+    assertFalse(receiver.decrypt(tampered).isPresent());
+
+    // A payload re-encrypted under another session's key does not verify
+    // with the first session's wrapped key.
+    sender.rotateSession();
+    HybridEncryptedData other = sender.encrypt("barfoo".getBytes()).get();
+    HybridEncryptedData swapped =
+      new HybridEncryptedData(message.getWrappedKey(), other.getIv(), other.getData());
+    assertFalse(receiver.decrypt(swapped).isPresent());
+
+    assertEquals("foobar", new String(receiver.decrypt(message).get()));
+  }
+
+  @Test
+  public void testOnlyAuthenticatedSessionsAreCached() throws Exception {
+    HybridCryptoTool sender = new HybridCryptoTool(keyPair.getPublic(), null);
+    HybridCryptoTool receiver = new HybridCryptoTool(null, keyPair.getPrivate());
+
+    HybridEncryptedData message = sender.encrypt("foobar".getBytes()).get();
+    HybridEncryptedData forged =
+      new HybridEncryptedData(message.getWrappedKey(), message.getIv(), new byte[32]);
+
+    assertFalse(receiver.decrypt(forged).isPresent());
+    assertFalse(receiver.decrypt(forged).isPresent());
+    assertEquals(0, receiver.getCachedSessionCount());
+
+    byte[] garbageKey = message.getWrappedKey().clone();
+    garbageKey[10] ^= 1;
+    assertFalse(receiver.decrypt(
+      new HybridEncryptedData(garbageKey, message.getIv(), message.getData())
+    ).isPresent());
+    assertEquals(0, receiver.getCachedSessionCount());
+
+    assertTrue(receiver.decrypt(message).isPresent());
+    assertTrue(receiver.decrypt(message).isPresent());
+    assertEquals(1, receiver.getCachedSessionCount());
+    assertEquals(3, receiver.getUnwrapCount());
+  }
+}
@@ -0,0 +1,126 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ImmutableCryptoToolTest {
+
+  private final Key key;
+
+  public ImmutableCryptoToolTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @Test
+  public void testCompatibleWithAesCryptoTool() throws Exception {
+    ImmutableCryptoTool tool = ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_AES)
+      .key(this.key)
+      .build();
+
+    assertEquals(CipherConstants.AesCbcPad5(), tool.getTransformation());
+    assertEquals(16, tool.getIvSize());
+
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+    Optional<byte[]> decryptedOptional = new AesCryptoTool(this.key).decrypt(encryptedData);
+    assertTrue(decryptedOptional.isPresent());
+    assertEquals("foobar", new String(decryptedOptional.get()));
+
+    EncryptedData viewData = tool.encrypt("foobar".getBytes()).get();
+    byte[] buffer = new byte[viewData.getIv().length + viewData.getData().length];
+    System.arraycopy(viewData.getIv(), 0, buffer, 0, 16);
+    System.arraycopy(viewData.getData(), 0, buffer, 16, viewData.getData().length);
+    EncryptedDataView view =
+      new EncryptedDataView(buffer, 0, 16, 16, viewData.getData().length);
+    assertEquals("foobar", new String(tool.decrypt(view).get()));
+  }
+
+  @Test
+  public void testGcmDetectsTampering() throws Exception {
+    ImmutableCryptoTool tool = ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_AES)
+      .mode(CipherConstants.MODE_GCM)
+      .padding(CipherConstants.PAD_NONE)
+      .key(this.key)
+      .build();
+
+    assertEquals(12, tool.getIvSize());
+
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+    assertEquals("foobar", new String(tool.decrypt(encryptedData).get()));
+
+    encryptedData.getData()[0] ^= 1;
+    assertFalse(tool.decrypt(encryptedData).isPresent());
+  }
+
+  @Test
+  public void testBadConfigurationFailsAtBuild() throws Exception {
+    assertBuildFails(ImmutableCryptoTool.builder().algorithm(CipherConstants.ALGO_AES));
+    assertBuildFails(ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_DES)
+      .key(this.key));
+    assertBuildFails(ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_AES)
+      .mode("BOGUS")
+      .key(this.key));
+    assertBuildFails(ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_AES)
+      .key(new SecretKeySpec(new byte[7], "AES")));
+  }
+
+  @Test
+  public void testSharedAcrossThreads() throws Exception {
+    ImmutableCryptoTool tool = ImmutableCryptoTool.builder()
+      .algorithm(CipherConstants.ALGO_AES)
+      .key(this.key)
+      .build();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i += 1) {
+        final String message = "message " + i;
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 500; j += 1) {
+            EncryptedData encryptedData = tool.encrypt(message.getBytes()).get();
+            if (!message.equals(new String(tool.decrypt(encryptedData).get()))) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+
+      for (Future<Boolean> future : futures) {
+        assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertBuildFails(ImmutableCryptoTool.Builder builder) {
+    try {
+      builder.build();
+      fail("Expected build() to fail");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage() != null);
+    }
+  }
+}
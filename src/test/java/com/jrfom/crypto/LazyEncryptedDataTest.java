@@ -0,0 +1,163 @@
+package com.jrfom.crypto;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazyEncryptedDataTest {
+
+  private final AesCryptoTool tool;
+
+  public LazyEncryptedDataTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    Key key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+    this.tool = new AesCryptoTool(key);
+  }
+
+  @Test
+  public void testDecryptsOnceAcrossThreads() throws Exception {
+    CountingTool counting = new CountingTool(this.tool);
+    LazyEncryptedData lazy =
+      new LazyEncryptedData(this.tool.encrypt("foobar".getBytes()).get(), counting);
+    assertFalse(lazy.isDecrypted());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i += 1) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return new String(lazy.get().get());
+        }));
+      }
+
+      start.countDown();
+      for (Future<String> future : futures) {
+        assertEquals("foobar", future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertTrue(lazy.isDecrypted());
+    assertEquals(1, counting.decrypts.get());
+  }
+
+  @Test
+  public void testReturnsCopiesAndClears() throws Exception {
+    CountingTool counting = new CountingTool(this.tool);
+    LazyEncryptedData lazy =
+      new LazyEncryptedData(this.tool.encrypt("foobar".getBytes()).get(), counting, true);
+
+    lazy.get().get()[0] = 0;
+    assertEquals("foobar", new String(lazy.get().get()));
+    assertEquals(1, counting.decrypts.get());
+
+    lazy.clear();
+    assertFalse(lazy.isDecrypted());
+    assertEquals("foobar", new String(lazy.get().get()));
+    assertEquals(2, counting.decrypts.get());
+  }
+
+  @Test
+  public void testClearDoesNotZeroCopies() throws Exception {
+    byte[] plainText = new byte[64 * 1024];
+    Arrays.fill(plainText, (byte) 'x');
+    LazyEncryptedData lazy = new LazyEncryptedData(this.tool.encrypt(plainText).get(), this.tool);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    AtomicBoolean done = new AtomicBoolean(false);
+
+    try {
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int i = 0; i < 3; i += 1) {
+        readers.add(executor.submit(() -> {
+          int reads = 0;
+          while (!done.get()) {
+            assertTrue(Arrays.equals(plainText, lazy.get().get()));
+            reads += 1;
+          }
+          return reads;
+        }));
+      }
+
+      for (int i = 0; i < 500; i += 1) {
+        lazy.clear();
+        Thread.yield();
+      }
+      done.set(true);
+
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get() > 0);
+      }
+    } finally {
+      done.set(true);
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailureIsMemoized() throws Exception {
+    CountingTool counting = new CountingTool(this.tool);
+    EncryptedData encryptedData = this.tool.encrypt("foobar".getBytes()).get();
+    encryptedData.setData(new byte[15]);
+    LazyEncryptedData lazy = new LazyEncryptedData(encryptedData, counting);
+
+    assertFalse(lazy.get().isPresent());
+    assertFalse(lazy.get().isPresent());
+    assertEquals(1, counting.decrypts.get());
+  }
+
+  @Test
+  public void testSerializesAsEncryptedData() throws Exception {
+    EncryptedData encryptedData = this.tool.encrypt("foobar".getBytes()).get();
+    LazyEncryptedData lazy = new LazyEncryptedData(encryptedData, this.tool);
+
+    assertEquals(encryptedData.toString(), new ObjectMapper().writeValueAsString(lazy));
+  }
+
+  private static class CountingTool implements CryptoTool {
+    final CryptoTool tool;
+    final AtomicInteger decrypts = new AtomicInteger();
+
+    CountingTool(CryptoTool tool) {
+      this.tool = tool;
+    }
+
+    @Override
+    public Optional<byte[]> decrypt(EncryptedData data) {
+      this.decrypts.incrementAndGet();
+      return this.tool.decrypt(data);
+    }
+
+    @Override
+    public Optional<EncryptedData> encrypt(byte[] data) {
+      return this.tool.encrypt(data);
+    }
+
+    @Override
+    public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+      return this.tool.encrypt(data, iv);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.jrfom.crypto;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MerkleHMACTest {
+
+  private final Key key;
+
+  public MerkleHMACTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), HMAC.ALGO_SHA256);
+  }
+
+  @Test
+  public void testVerifyEveryChunk() throws Exception {
+    MerkleHMAC merkle = new MerkleHMAC(this.key, HMAC.ALGO_SHA256, 1000);
+    byte[] data = new byte[10_500];
+    new Random(7).nextBytes(data);
+
+    MerkleHMAC.Tree tree = merkle.tree(data);
+    assertEquals(11, tree.getChunkCount());
+    assertEquals(32, tree.getRoot().length);
+
+    for (int i = 0; i < tree.getChunkCount(); i += 1) {
+      byte[] chunk = Arrays.copyOfRange(data, i * 1000, Math.min(data.length, (i + 1) * 1000));
+      MerkleHMAC.Proof proof = tree.proof(i);
+
+      assertTrue(merkle.verifyChunk(chunk, proof, tree.getRoot()));
+
+      chunk[0] ^= 1;
+      assertFalse(merkle.verifyChunk(chunk, proof, tree.getRoot()));
+    }
+
+    // A valid chunk presented at another position is rejected.
+    byte[] first = Arrays.copyOfRange(data, 0, 1000);
+    assertFalse(merkle.verifyChunk(first, tree.proof(1), tree.getRoot()));
+  }
+
+  @Test
+  public void testFileMatchesByteArray() throws Exception {
+    MerkleHMAC merkle = new MerkleHMAC(this.key, HMAC.ALGO_SHA256, 4096);
+    byte[] data = new byte[100_000];
+    new Random(11).nextBytes(data);
+
+    Path path = Files.createTempFile("merkle", ".bin");
+    try {
+      Files.write(path, data);
+
+      Optional<MerkleHMAC.Tree> treeOptional = merkle.tree(path);
+      assertTrue(treeOptional.isPresent());
+
+      MerkleHMAC.Tree tree = treeOptional.get();
+      assertArrayEquals(merkle.tree(data).getRoot(), tree.getRoot());
+      assertTrue(merkle.verifyChunk(path, tree.proof(24), tree.getRoot()));
+
+      data[24 * 4096 + 5] ^= 1;
+      Files.write(path, data);
+      assertFalse(merkle.verifyChunk(path, tree.proof(24), tree.getRoot()));
+      assertTrue(merkle.verifyChunk(path, tree.proof(3), tree.getRoot()));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testSingleAndEmptyInput() throws Exception {
+    MerkleHMAC merkle = new MerkleHMAC(this.key);
+
+    MerkleHMAC.Tree empty = merkle.tree(new byte[0]);
+    assertEquals(1, empty.getChunkCount());
+    assertTrue(merkle.verifyChunk(new byte[0], empty.proof(0), empty.getRoot()));
+
+    MerkleHMAC.Tree single = merkle.tree("foobar".getBytes());
+    assertEquals(0, single.proof(0).getSiblings().size());
+    assertArrayEquals(single.getLeaf(0), single.getRoot());
+    assertFalse(Arrays.equals(empty.getRoot(), single.getRoot()));
+  }
+}
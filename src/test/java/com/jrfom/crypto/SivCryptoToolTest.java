@@ -0,0 +1,99 @@
+package com.jrfom.crypto;
+
+import java.util.Optional;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SivCryptoToolTest {
+
+  // RFC 5297, appendix A.1
+  @Test
+  public void testDeterministicVector() throws Exception {
+    SivCryptoTool tool = new SivCryptoTool(new SecretKeySpec(
+      hex("fffefdfcfbfaf9f8f7f6f5f4f3f2f1f0f0f1f2f3f4f5f6f7f8f9fafbfcfdfeff"),
+      "AES"
+    ));
+    byte[] ad = hex("101112131415161718191a1b1c1d1e1f2021222324252627");
+    byte[] plainText = hex("112233445566778899aabbccddee");
+
+    Optional<EncryptedData> encryptedDataOptional =
+      tool.encryptWithAssociatedData(plainText, ad);
+    assertTrue(encryptedDataOptional.isPresent());
+
+    EncryptedData encryptedData = encryptedDataOptional.get();
+    assertArrayEquals(hex("85632d07c6e8f37f950acd320a2ecc93"), encryptedData.getIv());
+    assertArrayEquals(hex("40c02b9690c4dc04daef7f6afe5c"), encryptedData.getData());
+
+    Optional<byte[]> decryptedOptional =
+      tool.decryptWithAssociatedData(encryptedData, ad);
+    assertTrue(decryptedOptional.isPresent());
+    assertArrayEquals(plainText, decryptedOptional.get());
+  }
+
+  // RFC 5297, appendix A.2
+  @Test
+  public void testNonceBasedVector() throws Exception {
+    SivCryptoTool tool = new SivCryptoTool(new SecretKeySpec(
+      hex("7f7e7d7c7b7a79787776757473727170404142434445464748494a4b4c4d4e4f"),
+      "AES"
+    ));
+    byte[] ad1 = hex(
+      "00112233445566778899aabbccddeeffdeaddadadeaddadaffeeddccbbaa99887766554433221100"
+    );
+    byte[] ad2 = hex("102030405060708090a0");
+    byte[] nonce = hex("09f911029d74e35bd84156c5635688c0");
+    byte[] plainText = hex(
+      "7468697320697320736f6d6520706c61696e7465787420746f20656e6372797074207573696e67205349562d414553"
+    );
+
+    Optional<EncryptedData> encryptedDataOptional =
+      tool.encryptWithAssociatedData(plainText, ad1, ad2, nonce);
+    assertTrue(encryptedDataOptional.isPresent());
+
+    EncryptedData encryptedData = encryptedDataOptional.get();
+    assertArrayEquals(hex("7bdb6e3b432667eb06f4d14bff2fbd0f"), encryptedData.getIv());
+    assertArrayEquals(
+      hex("cb900f2fddbe404326601965c889bf17dba77ceb094fa663b7a3f748ba8af829ea64ad544a272e9c485b62a3fd5c0d"),
+      encryptedData.getData()
+    );
+  }
+
+  @Test
+  public void testEqualPlainTextsGiveEqualCipherTexts() throws Exception {
+    SivCryptoTool tool = new SivCryptoTool(KeyToolFactory.getInstance().aes256key().get());
+
+    EncryptedData first = tool.encrypt("foo@example.com".getBytes()).get();
+    EncryptedData second = tool.encrypt("foo@example.com".getBytes()).get();
+
+    assertEquals(first.toString(), second.toString());
+    assertEquals("foo@example.com", new String(tool.decrypt(second).get()));
+  }
+
+  @Test
+  public void testTamperedDataFailsAuthentication() throws Exception {
+    SivCryptoTool tool = new SivCryptoTool(KeyToolFactory.getInstance().aes256key().get());
+
+    EncryptedData encryptedData = tool.encrypt("foobar".getBytes()).get();
+    encryptedData.getData()[0] ^= 1;
+
+    assertFalse(tool.decrypt(encryptedData).isPresent());
+    assertFalse(tool.encrypt("foobar".getBytes(), new byte[16]).isPresent());
+  }
+
+  private static byte[] hex(String hex) {
+    byte[] result = new byte[hex.length() / 2];
+
+    for (int i = 0; i < result.length; i += 1) {
+      result[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,175 @@
+package com.jrfom.crypto.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.jrfom.crypto.AesCryptoTool;
+import com.jrfom.crypto.CryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EncryptedDataReaderTest {
+
+  private final AesCryptoTool tool;
+
+  public EncryptedDataReaderTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    Key key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+    this.tool = new AesCryptoTool(key);
+  }
+
+  @Test
+  public void testNdjsonRoundTrip() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (EncryptedDataWriter writer = new EncryptedDataWriter(out, this.tool)) {
+      for (int i = 0; i < 1000; i += 1) {
+        writer.write(("record " + i).getBytes());
+      }
+    }
+
+    String json = new String(out.toByteArray());
+    assertEquals(1000, json.split("\n").length);
+    assertTrue(json.endsWith("}\n"));
+
+    try (
+      EncryptedDataReader reader =
+        new EncryptedDataReader(new ByteArrayInputStream(out.toByteArray()), this.tool)
+    ) {
+      int i = 0;
+      while (reader.hasNext()) {
+        Optional<byte[]> decryptedOptional = reader.next();
+        assertTrue(decryptedOptional.isPresent());
+        assertEquals("record " + i, new String(decryptedOptional.get()));
+        i += 1;
+      }
+
+      assertEquals(1000, i);
+      assertEquals(1000, reader.getCount());
+    }
+  }
+
+  @Test
+  public void testJsonArrayRoundTrip() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try {
+      try (
+        EncryptedDataWriter writer = new EncryptedDataWriter(
+          out, this.tool, EncryptedDataWriter.Format.JSON_ARRAY, executor, 8
+        )
+      ) {
+        for (int i = 0; i < 100; i += 1) {
+          writer.write(("record " + i).getBytes());
+        }
+      }
+
+      String json = new String(out.toByteArray());
+      assertTrue(json.startsWith("[{"));
+      assertTrue(json.endsWith("}]"));
+
+      try (
+        EncryptedDataReader reader = new EncryptedDataReader(
+          new ByteArrayInputStream(out.toByteArray()), this.tool, executor, 8
+        )
+      ) {
+        for (int i = 0; i < 100; i += 1) {
+          assertEquals("record " + i, new String(reader.next().get()));
+        }
+        assertFalse(reader.hasNext());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailedWriteLeavesArrayUnterminated() throws Exception {
+    CryptoTool failing = new CryptoTool() {
+      @Override
+      public Optional<byte[]> decrypt(EncryptedData data) {
+        return EncryptedDataReaderTest.this.tool.decrypt(data);
+      }
+
+      @Override
+      public Optional<EncryptedData> encrypt(byte[] data) {
+        return "record 1".equals(new String(data)) ?
+          Optional.empty() :
+          EncryptedDataReaderTest.this.tool.encrypt(data);
+      }
+
+      @Override
+      public Optional<EncryptedData> encrypt(byte[] data, byte[] iv) {
+        return this.encrypt(data);
+      }
+    };
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try {
+      EncryptedDataWriter writer = new EncryptedDataWriter(
+        out, failing, EncryptedDataWriter.Format.JSON_ARRAY, executor, 8
+      );
+      for (int i = 0; i < 3; i += 1) {
+        writer.write(("record " + i).getBytes());
+      }
+
+      try {
+        writer.close();
+        fail("The failed record should fail the close");
+      } catch (IOException e) {
+        assertTrue(e.getMessage().contains("record 1"));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertFalse(new String(out.toByteArray()).endsWith("]"));
+
+    try (
+      EncryptedDataReader reader =
+        new EncryptedDataReader(new ByteArrayInputStream(out.toByteArray()), this.tool)
+    ) {
+      assertEquals("record 0", new String(reader.next().get()));
+      reader.hasNext();
+      fail("The truncated array should not be read as complete");
+    } catch (UncheckedIOException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testBadRecordDoesNotStopReading() throws Exception {
+    EncryptedData good = this.tool.encrypt("foobar".getBytes()).get();
+    EncryptedData bad = this.tool.encrypt("foobar".getBytes()).get();
+    bad.setData(new byte[15]);
+
+    String json = good.toString() + "\n" + bad.toString() + "\n" + good.toString();
+
+    try (
+      EncryptedDataReader reader =
+        new EncryptedDataReader(new ByteArrayInputStream(json.getBytes()), this.tool)
+    ) {
+      assertEquals("foobar", new String(reader.next().get()));
+      assertFalse(reader.next().isPresent());
+      assertEquals("foobar", new String(reader.next().get()));
+      assertFalse(reader.hasNext());
+    }
+  }
+}
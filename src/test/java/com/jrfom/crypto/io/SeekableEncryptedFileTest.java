@@ -0,0 +1,94 @@
+package com.jrfom.crypto.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SeekableEncryptedFileTest {
+
+  private final Key key;
+
+  public SeekableEncryptedFileTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @Test
+  public void testRandomAccessRead() throws Exception {
+    byte[] plainText = new byte[100_003];
+    new Random(42).nextBytes(plainText);
+
+    Path source = Files.createTempFile("seekable", ".plain");
+    Path target = Files.createTempFile("seekable", ".enc");
+    Files.write(source, plainText);
+
+    try {
+      ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+      Optional<Long> countOptional;
+      try (SeekableByteChannel sourceChannel = Files.newByteChannel(source)) {
+        countOptional = SeekableEncryptedFile.encrypt(
+          this.key,
+          sourceChannel,
+          Channels.newChannel(encrypted),
+          4096
+        );
+      }
+      assertTrue(countOptional.isPresent());
+      assertEquals(plainText.length, countOptional.get().longValue());
+      Files.write(target, encrypted.toByteArray());
+
+      Optional<SeekableEncryptedChannel> channelOptional =
+        SeekableEncryptedFile.open(this.key, target);
+      assertTrue(channelOptional.isPresent());
+
+      try (SeekableEncryptedChannel channel = channelOptional.get()) {
+        assertEquals(plainText.length, channel.size());
+
+        // Within one segment, across a segment boundary, and at the tail.
+        this.assertRange(channel, plainText, 17, 100);
+        this.assertRange(channel, plainText, 4090, 20);
+        this.assertRange(channel, plainText, 50_000, 9000);
+        this.assertRange(channel, plainText, 99_990, 13);
+        this.assertRange(channel, plainText, 0, 31);
+
+        channel.position(plainText.length);
+        assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+      }
+    } finally {
+      Files.deleteIfExists(source);
+      Files.deleteIfExists(target);
+    }
+  }
+
+  private void assertRange(SeekableEncryptedChannel channel, byte[] plainText,
+                           int offset, int length) throws Exception
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    channel.position(offset);
+    while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+      // read the full range
+    }
+
+    assertArrayEquals(
+      Arrays.copyOfRange(plainText, offset, offset + length),
+      buffer.array()
+    );
+    assertEquals(offset + length, channel.position());
+  }
+}
@@ -0,0 +1,116 @@
+package com.jrfom.crypto.jfr;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.jrfom.crypto.AesCryptoTool;
+import com.jrfom.crypto.DirectBufferPool;
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.EncryptedDataView;
+import com.jrfom.crypto.HMAC;
+import com.jrfom.crypto.KeyTool;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class CryptoEventsTest {
+
+  private final Key key;
+
+  public CryptoEventsTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    this.key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+  }
+
+  @Before
+  public void requireFlightRecorder() {
+    assumeTrue(CryptoEvents.isAvailable());
+  }
+
+  @Test
+  public void testDisabledEventsAreNoOps() throws Exception {
+    assertSame(CryptoTrace.NOOP, CryptoEvents.cipher("encrypt", "AES/CBC/PKCS5Padding"));
+    assertSame(CryptoTrace.NOOP, CryptoEvents.hmac(HMAC.ALGO_SHA256));
+  }
+
+  @Test
+  public void testRecordsOperations() throws Exception {
+    AesCryptoTool tool = new AesCryptoTool(this.key);
+
+    Map<String, Map<String, Object>> byOperation = this.record(() -> {
+      EncryptedData encryptedData = tool.encrypt(new byte[1000]).get();
+      EncryptedData parsed = EncryptedData.fromJSON(encryptedData.toString()).get();
+      tool.decrypt(parsed).get();
+      HMAC.sha256ForDataWithKey("foobar".getBytes(), this.key).get();
+      new KeyTool().aes128key().get();
+    });
+
+    Map<String, Object> encrypt = byOperation.get("encrypt");
+    assertEquals("com.jrfom.crypto.Cipher", encrypt.get("eventType"));
+    assertEquals("AES/CBC/PKCS5Padding", encrypt.get("algorithm"));
+    assertEquals(1000L, encrypt.get("payloadSize"));
+    assertTrue((Boolean) encrypt.get("success"));
+
+    assertEquals(1008L, byOperation.get("decrypt").get("payloadSize"));
+    assertEquals("com.jrfom.crypto.Json", byOperation.get("parse").get("eventType"));
+    assertEquals("com.jrfom.crypto.Json", byOperation.get("serialize").get("eventType"));
+    assertEquals(HMAC.ALGO_SHA256, byOperation.get("hmac").get("algorithm"));
+    assertEquals(128L, byOperation.get("generate").get("payloadSize"));
+  }
+
+  @Test
+  public void testRecordsPoolOperations() throws Exception {
+    AesCryptoTool tool = new AesCryptoTool(this.key);
+    DirectBufferPool pool = new DirectBufferPool();
+
+    Map<String, Map<String, Object>> byOperation = this.record(() -> {
+      EncryptedDataView view = tool.encrypt(ByteBuffer.allocateDirect(1000), pool).get();
+      pool.release(tool.decrypt(view, pool).get());
+      pool.release(view.getBuffer());
+    });
+
+    assertEquals(1000L, byOperation.get("encrypt").get("payloadSize"));
+    assertTrue((Boolean) byOperation.get("encrypt").get("success"));
+    assertEquals(1008L, byOperation.get("decrypt").get("payloadSize"));
+    assertTrue((Boolean) byOperation.get("decrypt").get("success"));
+  }
+
+  @Test
+  public void testRecordsStreamOperations() throws Exception {
+    AesCryptoTool tool = new AesCryptoTool(this.key);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    Map<String, Map<String, Object>> byOperation = this.record(() -> {
+      assertTrue(tool.encryptObject(new int[] {1, 2, 3}, output));
+      assertTrue(tool.decryptObject(new ByteArrayInputStream(output.toByteArray()), int[].class).isPresent());
+    });
+
+    // "[1,2,3]" and the 16 byte block it encrypts to.
+    assertEquals(7L, byOperation.get("encrypt").get("payloadSize"));
+    assertTrue((Boolean) byOperation.get("encrypt").get("success"));
+    assertEquals(16L, byOperation.get("decrypt").get("payloadSize"));
+    assertTrue((Boolean) byOperation.get("decrypt").get("success"));
+  }
+
+  // The recording helper uses jdk.jfr and is compiled for Java 11 from
+  // src/test/java11, so it is only loaded once recording is available.
+  @SuppressWarnings("unchecked")
+  private Map<String, Map<String, Object>> record(Runnable work) throws Exception {
+    Function<Runnable, Map<String, Map<String, Object>>> recording =
+      (Function<Runnable, Map<String, Map<String, Object>>>)
+        Class.forName("com.jrfom.crypto.jfr.JfrRecording").getDeclaredConstructor().newInstance();
+
+    return recording.apply(work);
+  }
+}
@@ -0,0 +1,295 @@
+package com.jrfom.crypto.rotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.jrfom.crypto.AesCryptoTool;
+import com.jrfom.crypto.EncryptedData;
+import com.jrfom.crypto.KeyToolFactory;
+import com.jrfom.crypto.io.EncryptedDataParser;
+import com.jrfom.crypto.io.EncryptedDataReader;
+import com.jrfom.crypto.io.EncryptedDataWriter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReEncryptionEngineTest {
+
+  private final AesCryptoTool oldTool;
+  private final AesCryptoTool newTool;
+
+  public ReEncryptionEngineTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    Key key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+    this.oldTool = new AesCryptoTool(key);
+    this.newTool = new AesCryptoTool(KeyToolFactory.getInstance().aes128key().get());
+  }
+
+  @Test
+  public void testReEncryptsInOrder() throws Exception {
+    List<EncryptedData> source = this.records(500);
+    source.get(42).setData(new byte[15]);
+
+    List<Long> indexes = new ArrayList<>();
+    List<EncryptedData> written = new ArrayList<>();
+    List<Long> failures = new ArrayList<>();
+
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setThreads(4);
+    engine.setMaxInFlight(16);
+    engine.setListener(new ReEncryptionListener() {
+      @Override
+      public void onFailure(long index, EncryptedData original) {
+        failures.add(index);
+      }
+    });
+
+    ReEncryptionEngine.Result result = engine.run(source.iterator(), (index, data) -> {
+      indexes.add(index);
+      written.add(data);
+    });
+
+    assertEquals(499, result.getWritten());
+    assertEquals(1, result.getFailed());
+    assertEquals(42L, (long) failures.get(0));
+
+    assertEquals(41L, (long) indexes.get(41));
+    assertEquals(43L, (long) indexes.get(42));
+    for (int i = 0; i < written.size(); i += 1) {
+      long index = indexes.get(i);
+      assertEquals("record " + index, new String(this.newTool.decrypt(written.get(i)).get()));
+    }
+  }
+
+  @Test
+  public void testResumesFromCheckpoint() throws Exception {
+    Path path = Files.createTempFile("rotation", ".checkpoint");
+    FileCheckpoint checkpoint = new FileCheckpoint(path);
+    checkpoint.save(200, 0);
+
+    List<Long> indexes = new ArrayList<>();
+    List<Long> progress = new ArrayList<>();
+
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setCheckpoint(checkpoint);
+    engine.setCheckpointInterval(100);
+    engine.setListener(new ReEncryptionListener() {
+      @Override
+      public void onProgress(long processed, long failed, double recordsPerSecond) {
+        progress.add(processed);
+      }
+    });
+
+    try {
+      ReEncryptionEngine.Result result =
+        engine.run(this.records(500).iterator(), (index, data) -> indexes.add(index));
+
+      assertEquals(200, result.getSkipped());
+      assertEquals(300, result.getWritten());
+      assertEquals(200L, (long) indexes.get(0));
+      assertEquals(500, checkpoint.load());
+      assertEquals(500L, (long) progress.get(progress.size() - 1));
+    } finally {
+      checkpoint.delete();
+    }
+  }
+
+  @Test
+  public void testStreamToStream() throws Exception {
+    ByteArrayOutputStream in = new ByteArrayOutputStream();
+    try (EncryptedDataWriter writer = new EncryptedDataWriter(in, this.oldTool)) {
+      for (EncryptedData record : this.records(100)) {
+        writer.write(record);
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setRecordsPerSecond(10_000);
+
+    try (
+      EncryptedDataParser parser = new EncryptedDataParser(new ByteArrayInputStream(in.toByteArray()));
+      EncryptedDataWriter writer = new EncryptedDataWriter(out, this.newTool)
+    ) {
+      assertEquals(100, engine.run(parser, ReEncryptionSink.of(writer)).getWritten());
+    }
+
+    try (
+      EncryptedDataReader reader =
+        new EncryptedDataReader(new ByteArrayInputStream(out.toByteArray()), this.newTool)
+    ) {
+      for (int i = 0; i < 100; i += 1) {
+        assertEquals("record " + i, new String(reader.next().get()));
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testStreamSinkCannotResume() throws Exception {
+    Path path = Files.createTempFile("rotation", ".checkpoint");
+    FileCheckpoint checkpoint = new FileCheckpoint(path);
+    checkpoint.delete();
+    List<EncryptedData> source = this.records(200);
+
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setCheckpoint(checkpoint);
+    engine.setCheckpointInterval(20);
+
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (EncryptedDataWriter writer = new EncryptedDataWriter(out, this.newTool)) {
+        engine.run(source.iterator(), this.crashingSink(ReEncryptionSink.of(writer), 75));
+        fail("The sink should have crashed");
+      } catch (IOException e) {
+        assertEquals("crash", e.getMessage());
+      }
+      assertEquals(60, checkpoint.load());
+
+      // Resuming would append duplicates after what the crashed run wrote.
+      try (EncryptedDataWriter writer = new EncryptedDataWriter(out, this.newTool)) {
+        engine.run(source.iterator(), ReEncryptionSink.of(writer));
+        fail("A stream sink should not resume");
+      } catch (IOException e) {
+        assertTrue(e.getMessage().contains("FileSink"));
+      }
+    } finally {
+      checkpoint.delete();
+    }
+  }
+
+  @Test
+  public void testFileSinkResumesAfterCrash() throws Exception {
+    Path path = Files.createTempFile("rotation", ".checkpoint");
+    Path output = Files.createTempFile("rotation", ".ndjson");
+    FileCheckpoint checkpoint = new FileCheckpoint(path);
+    checkpoint.delete();
+    List<EncryptedData> source = this.records(200);
+
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setCheckpoint(checkpoint);
+    engine.setCheckpointInterval(20);
+
+    try {
+      try (FileSink sink = new FileSink(output)) {
+        engine.run(source.iterator(), this.crashingSink(sink, 75));
+        fail("The sink should have crashed");
+      } catch (IOException e) {
+        assertEquals("crash", e.getMessage());
+      }
+      assertEquals(60, checkpoint.load());
+
+      try (FileSink sink = new FileSink(output)) {
+        ReEncryptionEngine.Result result = engine.run(source.iterator(), sink);
+        assertEquals(60, result.getSkipped());
+        assertEquals(140, result.getWritten());
+      }
+
+      this.assertRecords(output, 200);
+    } finally {
+      checkpoint.delete();
+      Files.deleteIfExists(output);
+    }
+  }
+
+  @Test
+  public void testFailedRecordsAreRetried() throws Exception {
+    Path path = Files.createTempFile("rotation", ".checkpoint");
+    Path output = Files.createTempFile("rotation", ".ndjson");
+    FileCheckpoint checkpoint = new FileCheckpoint(path);
+    checkpoint.delete();
+    List<EncryptedData> source = this.records(200);
+    byte[] data = source.get(42).getData();
+    source.get(42).setData(new byte[15]);
+
+    ReEncryptionEngine engine = new ReEncryptionEngine(this.oldTool, this.newTool);
+    engine.setCheckpoint(checkpoint);
+    engine.setCheckpointInterval(10);
+
+    try {
+      try (FileSink sink = new FileSink(output)) {
+        assertEquals(1, engine.run(source.iterator(), sink).getFailed());
+      }
+      assertEquals(42, checkpoint.load());
+
+      source.get(42).setData(data);
+      try (FileSink sink = new FileSink(output)) {
+        ReEncryptionEngine.Result result = engine.run(source.iterator(), sink);
+        assertEquals(42, result.getSkipped());
+        assertEquals(158, result.getWritten());
+        assertEquals(0, result.getFailed());
+      }
+      assertEquals(200, checkpoint.load());
+
+      this.assertRecords(output, 200);
+    } finally {
+      checkpoint.delete();
+      Files.deleteIfExists(output);
+    }
+  }
+
+  private ReEncryptionSink crashingSink(ReEncryptionSink sink, int crashAfter) {
+    return new ReEncryptionSink() {
+      private int writes = 0;
+
+      @Override
+      public void write(long index, EncryptedData data) throws IOException {
+        if (this.writes == crashAfter) {
+          throw new IOException("crash");
+        }
+        this.writes += 1;
+        sink.write(index, data);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        sink.flush();
+      }
+
+      @Override
+      public long position() throws IOException {
+        return sink.position();
+      }
+
+      @Override
+      public void resume(long processed, long position) throws IOException {
+        sink.resume(processed, position);
+      }
+    };
+  }
+
+  private void assertRecords(Path output, int count) throws IOException {
+    try (
+      InputStream in = Files.newInputStream(output);
+      EncryptedDataReader reader = new EncryptedDataReader(in, this.newTool)
+    ) {
+      for (int i = 0; i < count; i += 1) {
+        assertEquals("record " + i, new String(reader.next().get()));
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  private List<EncryptedData> records(int count) {
+    List<EncryptedData> result = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i += 1) {
+      result.add(this.oldTool.encrypt(("record " + i).getBytes()).get());
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,203 @@
+package com.jrfom.crypto.store;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import com.jrfom.crypto.AesCryptoTool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EncryptedKeyValueStoreTest {
+
+  private final AesCryptoTool tool;
+  private Path path;
+
+  public EncryptedKeyValueStoreTest() {
+    String b64key = "uCntWeIpo4kgDAaGDUQo2w==";
+    Key key = new SecretKeySpec(Base64.getDecoder().decode(b64key), "AES");
+    this.tool = new AesCryptoTool(key);
+  }
+
+  @Before
+  public void createPath() throws Exception {
+    this.path = Files.createTempFile("store", ".kv");
+    Files.delete(this.path);
+  }
+
+  @After
+  public void deletePath() throws Exception {
+    Files.deleteIfExists(this.path);
+  }
+
+  @Test
+  public void testPutGetRemoveAcrossRestarts() throws Exception {
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      assertTrue(store.put("token", "first".getBytes()));
+      assertTrue(store.put("token", "second".getBytes()));
+      assertTrue(store.put("secret", "foobar".getBytes()));
+      assertTrue(store.put("gone", "soon".getBytes()));
+      assertTrue(store.remove("gone"));
+      assertFalse(store.remove("gone"));
+
+      assertEquals("second", new String(store.get("token").get()));
+      assertFalse(store.get("gone").isPresent());
+    }
+
+    // The plaintext is never written to disk.
+    assertFalse(new String(Files.readAllBytes(this.path)).contains("foobar"));
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      assertEquals(2, store.size());
+      assertEquals("second", new String(store.get("token").get()));
+      assertEquals("foobar", new String(store.get("secret").get()));
+      assertFalse(store.containsKey("gone"));
+    }
+  }
+
+  @Test
+  public void testTruncatesTornRecord() throws Exception {
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      store.put("first", "one".getBytes());
+      store.put("second", "two".getBytes());
+    }
+
+    long size = Files.size(this.path);
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+      channel.truncate(size - 3);
+    }
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      assertEquals(1, store.size());
+      assertEquals("one", new String(store.get("first").get()));
+
+      assertTrue(store.put("second", "again".getBytes()));
+      assertEquals("again", new String(store.get("second").get()));
+    }
+  }
+
+  @Test
+  public void testCompactionReclaimsSpace() throws Exception {
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      for (int i = 0; i < 1000; i += 1) {
+        store.put("key" + (i % 10), ("value " + i).getBytes());
+      }
+      store.remove("key0");
+
+      long before = store.getFileSize();
+      assertTrue(store.compact());
+      assertTrue(store.getFileSize() < before / 50);
+      assertEquals(store.getFileSize() - EncryptedKeyValueStore.HEADER_SIZE, store.getLiveBytes());
+
+      assertEquals(9, store.size());
+      assertEquals("value 999", new String(store.get("key9").get()));
+      assertTrue(store.put("key0", "back".getBytes()));
+    }
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      assertEquals(10, store.size());
+      assertEquals("back", new String(store.get("key0").get()));
+      assertEquals("value 991", new String(store.get("key1").get()));
+    }
+  }
+
+  @Test
+  public void testWritesDuringCompaction() throws Exception {
+    Map<String, String> expected = new ConcurrentHashMap<>();
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      for (int i = 0; i < 20_000; i += 1) {
+        store.put("key" + (i % 2000), ("value " + i).getBytes());
+        expected.put("key" + (i % 2000), "value " + i);
+      }
+
+      // The writer races the compactions, so its changes land both in the
+      // snapshot and in the tail that is replayed before the swap.
+      AtomicBoolean done = new AtomicBoolean(false);
+      Thread writer = new Thread(() -> {
+        for (int i = 0; !done.get() || i < 5000; i += 1) {
+          String key = "key" + (i % 2500);
+          if (i % 7 == 0) {
+            store.remove(key);
+            expected.remove(key);
+          } else {
+            store.put(key, ("written " + i).getBytes());
+            expected.put(key, "written " + i);
+          }
+        }
+      });
+      writer.start();
+
+      int compactions = 0;
+      for (int i = 0; i < 5; i += 1) {
+        compactions += store.compact() ? 1 : 0;
+      }
+      done.set(true);
+      writer.join();
+
+      assertEquals(5, compactions);
+      this.assertContents(store, expected);
+
+      assertTrue(store.compact());
+      assertEquals(store.getFileSize() - EncryptedKeyValueStore.HEADER_SIZE, store.getLiveBytes());
+    }
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool).get()) {
+      this.assertContents(store, expected);
+    }
+  }
+
+  @Test
+  public void testBackgroundCompaction() throws Exception {
+    byte[] value = new byte[1024];
+
+    try (EncryptedKeyValueStore store = EncryptedKeyValueStore.open(this.path, this.tool, 20).get()) {
+      for (int i = 0; i < 2000; i += 1) {
+        value[0] = (byte) i;
+        store.put("key" + (i % 10), value);
+      }
+
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (this.garbage(store) >= EncryptedKeyValueStore.MINIMUM_COMPACTION_GARBAGE
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+
+      // 2000 KiB of values were appended, so anything smaller has been compacted.
+      assertTrue(this.garbage(store) < EncryptedKeyValueStore.MINIMUM_COMPACTION_GARBAGE);
+      assertTrue(store.getFileSize() < 2000 * 1024);
+      assertEquals(10, store.size());
+      assertEquals((byte) 1999, store.get("key9").get()[0]);
+    }
+  }
+
+  @Test
+  public void testRejectsForeignFile() throws Exception {
+    Files.write(this.path, "not a store".getBytes());
+    assertFalse(EncryptedKeyValueStore.open(this.path, this.tool).isPresent());
+  }
+
+  private long garbage(EncryptedKeyValueStore store) {
+    return store.getFileSize() - EncryptedKeyValueStore.HEADER_SIZE - store.getLiveBytes();
+  }
+
+  private void assertContents(EncryptedKeyValueStore store, Map<String, String> expected) {
+    assertEquals(expected.size(), store.size());
+    for (Map.Entry<String, String> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), new String(store.get(entry.getKey()).get()));
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.jrfom.crypto.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadToolTest {
+
+  @Test
+  public void testHistogramPercentiles() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (long i = 1; i <= 1000; i += 1) {
+      histogram.record(i * 1000);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1_000_000, histogram.getMax());
+    assertWithin(500_000, histogram.percentile(50));
+    assertWithin(990_000, histogram.percentile(99));
+    assertWithin(999_000, histogram.percentile(99.9));
+
+    for (long value = 0; value < 100_000; value += 7) {
+      assertTrue(LatencyHistogram.upperBound(LatencyHistogram.index(value)) >= value);
+    }
+  }
+
+  @Test
+  public void testRunsEachOperation() throws Exception {
+    for (String op : new String[] {"encrypt", "decrypt", "hmac", "serialize", "parse"}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      int exitCode = LoadTool.run(
+        new String[] {"--op", op, "--threads", "2", "--duration", "0.1", "--warmup", "0", "--size", "256"},
+        new PrintStream(out),
+        System.err
+      );
+
+      assertEquals(0, exitCode);
+      String report = out.toString();
+      assertTrue(report.contains("op=" + op));
+      assertTrue(report.contains("ops/s="));
+      assertTrue(report.contains("p999="));
+      assertTrue(report.contains("failures=0"));
+    }
+  }
+
+  @Test
+  public void testFailedOperationsFailTheRun() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    // Unpadded ECB cannot encrypt a payload that is not a whole block.
+    int exitCode = LoadTool.run(
+      new String[] {
+        "--op", "encrypt", "--mode", "ECB", "--padding", "NoPadding", "--size", "15",
+        "--threads", "2", "--duration", "0.05", "--warmup", "0", "--max-failures", "10"
+      },
+      new PrintStream(out),
+      new PrintStream(err)
+    );
+
+    assertEquals(1, exitCode);
+    String report = out.toString();
+    assertTrue(report.contains("ops=0 ops/s=0.0 MB/s=0.00"));
+    assertTrue(report.contains("p50=0.0 p99=0.0 p999=0.0 max=0.0"));
+    assertTrue(report.contains("Stopped after"));
+    assertTrue(err.toString().contains("operations failed"));
+  }
+
+  @Test
+  public void testRejectsBadArguments() throws Exception {
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+    assertEquals(2, LoadTool.run(new String[] {"--op", "bogus"}, out, new PrintStream(err)));
+    assertEquals(2, LoadTool.run(new String[] {"--threads"}, out, new PrintStream(err)));
+    assertEquals(2, LoadTool.run(
+      new String[] {"--mode", "BOGUS", "--duration", "0.1"}, out, new PrintStream(err)
+    ));
+    assertTrue(err.toString().contains("Usage:"));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(
+      String.format("%d is not within 7%% of %d", actual, expected),
+      Math.abs(actual - expected) <= expected * 0.07
+    );
+  }
+}
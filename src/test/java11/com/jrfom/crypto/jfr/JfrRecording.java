@@ -0,0 +1,68 @@
+package com.jrfom.crypto.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Runs some work under a recording with the Crypto Util events enabled and
+ * returns the recorded events, keyed by operation, as maps of their fields
+ * plus "eventType". It is compiled for Java 11 with the main JfrEvents, and
+ * {@link com.jrfom.crypto.jfr.CryptoEventsTest} loads it by name so that
+ * the test itself does not refer to {@code jdk.jfr}.
+ */
+final class JfrRecording implements Function<Runnable, Map<String, Map<String, Object>>> {
+  private static final String[] EVENTS = {
+    "com.jrfom.crypto.Cipher",
+    "com.jrfom.crypto.Hmac",
+    "com.jrfom.crypto.KeyGeneration",
+    "com.jrfom.crypto.Json"
+  };
+
+  JfrRecording() {}
+
+  @Override
+  public Map<String, Map<String, Object>> apply(Runnable work) {
+    Map<String, Map<String, Object>> result = new HashMap<>();
+
+    try {
+      Path path = Files.createTempFile("crypto", ".jfr");
+
+      try {
+        try (Recording recording = new Recording()) {
+          for (String event : EVENTS) {
+            recording.enable(event).withoutThreshold();
+          }
+
+          recording.start();
+          work.run();
+          recording.stop();
+          recording.dump(path);
+        }
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+          Map<String, Object> fields = new HashMap<>();
+          fields.put("eventType", event.getEventType().getName());
+          fields.put("algorithm", event.getString("algorithm"));
+          fields.put("payloadSize", event.getLong("payloadSize"));
+          fields.put("success", event.getBoolean("success"));
+          result.put(event.getString("operation"), fields);
+        }
+      } finally {
+        Files.deleteIfExists(path);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return result;
+  }
+}